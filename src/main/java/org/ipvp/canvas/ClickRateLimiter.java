@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Limits how often a player may click each slot of a menu.
+ * <p>
+ * Every player has a token bucket per slot index. A click consumes a token and
+ * tokens are refilled at a constant rate up to the burst size. Clicks made while
+ * the bucket is empty are dropped by the {@link MenuFunctionListener} before any
+ * click handler is invoked.
+ * <p>
+ * Limiters are passed to {@link MenuFunctionListener#MenuFunctionListener(ClickRateLimiter)}.
+ */
+public class ClickRateLimiter {
+
+    private final int burst;
+    private final long refillNanos;
+    private final Map<UUID, Viewer> viewers = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    private ClickRateLimiter(Builder builder) {
+        this.burst = builder.burst;
+        this.refillNanos = builder.refillNanos;
+    }
+
+    /**
+     * Attempts to take a token for a click of a player on a slot.
+     *
+     * @param player player that clicked
+     * @param slot clicked slot index
+     * @return true if the click may be processed, false if it should be dropped
+     */
+    public boolean tryAcquire(Player player, int slot) {
+        Viewer viewer = viewers.computeIfAbsent(player.getUniqueId(), id -> new Viewer());
+        if (viewer.tryAcquire(slot, System.nanoTime())) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Returns the total amount of clicks dropped by this limiter.
+     *
+     * @return dropped clicks
+     */
+    public long getDroppedClicks() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the amount of clicks by a player dropped by this limiter since
+     * the player was last forgotten.
+     *
+     * @param player player
+     * @return dropped clicks
+     */
+    public long getDroppedClicks(Player player) {
+        Viewer viewer = viewers.get(player.getUniqueId());
+        return viewer == null ? 0 : viewer.dropped;
+    }
+
+    /**
+     * Discards the buckets of a player, such as when they leave the server.
+     *
+     * @param player player
+     */
+    public void forget(Player player) {
+        viewers.remove(player.getUniqueId());
+    }
+
+    /**
+     * Returns a new builder.
+     *
+     * @return builder instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Token buckets of a single player, indexed by slot
+    private final class Viewer {
+
+        private long[] refilledAt = new long[0];
+        private int[] tokens = new int[0];
+        private volatile long dropped;
+
+        synchronized boolean tryAcquire(int slot, long now) {
+            if (slot >= tokens.length) {
+                int length = Math.max(slot + 1, tokens.length * 2);
+                int from = tokens.length;
+                tokens = Arrays.copyOf(tokens, length);
+                refilledAt = Arrays.copyOf(refilledAt, length);
+                Arrays.fill(tokens, from, length, burst);
+                Arrays.fill(refilledAt, from, length, now);
+            }
+
+            if (tokens[slot] < burst) {
+                long refilled = (now - refilledAt[slot]) / refillNanos;
+                if (refilled > 0) {
+                    tokens[slot] = (int) Math.min(burst, tokens[slot] + refilled);
+                    refilledAt[slot] = tokens[slot] == burst ? now : refilledAt[slot] + refilled * refillNanos;
+                }
+            } else {
+                refilledAt[slot] = now;
+            }
+
+            if (tokens[slot] == 0) {
+                dropped++;
+                return false;
+            }
+            tokens[slot]--;
+            return true;
+        }
+    }
+
+    /**
+     * A builder for creating a ClickRateLimiter instance.
+     */
+    public static class Builder {
+
+        private int burst = 4;
+        private long refillNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+        Builder() {
+
+        }
+
+        /**
+         * Sets the amount of clicks on a slot that may be made in quick succession.
+         *
+         * @param burst bucket size
+         * @return Fluent pattern
+         */
+        public Builder burst(int burst) {
+            if (burst < 1) {
+                throw new IllegalArgumentException("burst must be positive");
+            }
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * Sets the amount of clicks per second on a slot that are allowed once
+         * the burst is used up.
+         *
+         * @param clicksPerSecond refill rate
+         * @return Fluent pattern
+         */
+        public Builder rate(int clicksPerSecond) {
+            if (clicksPerSecond < 1) {
+                throw new IllegalArgumentException("rate must be positive");
+            }
+            this.refillNanos = TimeUnit.SECONDS.toNanos(1) / clicksPerSecond;
+            return this;
+        }
+
+        /**
+         * Builds the limiter from the provided data.
+         *
+         * @return click rate limiter
+         */
+        public ClickRateLimiter build() {
+            return new ClickRateLimiter(this);
+        }
+    }
+}
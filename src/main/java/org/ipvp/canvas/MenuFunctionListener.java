@@ -24,6 +24,7 @@
 package org.ipvp.canvas;
 
 import java.util.Map;
+import java.util.Optional;
 
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -39,13 +40,17 @@ import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.inventory.InventoryInteractEvent;
 import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
+import org.ipvp.canvas.metrics.CanvasMetrics;
+import org.ipvp.canvas.metrics.MenuMetrics;
 import org.ipvp.canvas.slot.ClickOptions;
 import org.ipvp.canvas.slot.Slot;
 import org.ipvp.canvas.type.AbstractMenu;
 import org.ipvp.canvas.type.MenuHolder;
+import org.ipvp.canvas.type.Prerendering;
 
 /**
  * A listener that maintains the required functions of Menus.
@@ -55,6 +60,30 @@ import org.ipvp.canvas.type.MenuHolder;
  */
 public final class MenuFunctionListener implements Listener {
 
+    private final ClickRateLimiter rateLimiter;
+
+    public MenuFunctionListener() {
+        this(null);
+    }
+
+    /**
+     * Creates a listener that drops clicks exceeding the limits of a rate limiter.
+     *
+     * @param rateLimiter click rate limiter, or null to process every click
+     */
+    public MenuFunctionListener(ClickRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Returns the click rate limiter of this listener.
+     *
+     * @return rate limiter, if present
+     */
+    public Optional<ClickRateLimiter> getRateLimiter() {
+        return Optional.ofNullable(rateLimiter);
+    }
+
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGH)
     public void handleGuiDrag(InventoryDragEvent event) {
         InventoryView view = event.getView();
@@ -234,6 +263,16 @@ public final class MenuFunctionListener implements Listener {
     // Handles events where a slot was clicked inside an inventory
     private void passClickToSlot(InventoryInteractEvent handle, InventoryAction inventoryAction, ClickType clickType,
                                  Inventory clicked, Menu menu, int slotIndex, ItemStack addingItem) {
+        // Drop clicks exceeding the rate limit before doing any work for them
+        if (rateLimiter != null && !rateLimiter.tryAcquire((Player) handle.getWhoClicked(), slotIndex)) {
+            handle.setResult(Event.Result.DENY);
+            return;
+        }
+
+        MenuMetrics metrics = CanvasMetrics.get();
+        boolean timed = metrics != MenuMetrics.NONE && metrics.shouldSample();
+        long start = timed ? System.nanoTime() : 0;
+
         // Fetch the slot that was clicked and process the information here
         Slot slot = menu.getSlot(slotIndex);
         ClickOptions options = slot.getClickOptions();
@@ -247,12 +286,27 @@ public final class MenuFunctionListener implements Listener {
                 clicked, menu, slot, handle.getResult(), addingItem);
 
         // Process the click information for the event if the slot has a click handler
-        if (slot.getClickHandler().isPresent()) {
-            slot.getClickHandler().get().click((Player) handle.getWhoClicked(), clickInformation);
-        }
+        Slot.ClickHandler handler = slot.getClickHandler().orElse(null);
+        MenuMetrics.Span span = metrics.beginClick(menu, slotIndex, clickInformation, handler);
+        try {
+            if (handler != null) {
+                try {
+                    handler.click((Player) handle.getWhoClicked(), clickInformation);
+                } catch (RuntimeException | Error e) {
+                    metrics.handlerFailed(menu, slotIndex, handler, e);
+                    throw e;
+                }
+            }
 
-        // Complete the handling of the event by setting the result of the click
-        handle.setResult(clickInformation.getResult());
+            // Complete the handling of the event by setting the result of the click
+            handle.setResult(clickInformation.getResult());
+
+            if (timed) {
+                metrics.clickDispatched(menu, slotIndex, clickInformation, handler, System.nanoTime() - start);
+            }
+        } finally {
+            span.end();
+        }
     }
     
     @EventHandler(ignoreCancelled = true)
@@ -292,4 +346,33 @@ public final class MenuFunctionListener implements Listener {
             ((AbstractMenu) menu).closedByPlayer((Player) event.getPlayer(), true);
         }
     }
+
+    // Items may have been moved in or out of the menu, so the window no longer matches what was rendered
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void invalidateContents(InventoryClickEvent event) {
+        Inventory top = event.getView().getTopInventory();
+        if (top.getHolder() instanceof MenuHolder) {
+            ((MenuHolder) top.getHolder()).invalidateContents();
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void invalidateContents(InventoryDragEvent event) {
+        Inventory top = event.getView().getTopInventory();
+        if (top.getHolder() instanceof MenuHolder) {
+            ((MenuHolder) top.getHolder()).invalidateContents();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void forgetRateLimits(PlayerQuitEvent event) {
+        if (rateLimiter != null) {
+            rateLimiter.forget(event.getPlayer());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void forgetPrerenders(PlayerQuitEvent event) {
+        Prerendering.forget(event.getPlayer());
+    }
 }
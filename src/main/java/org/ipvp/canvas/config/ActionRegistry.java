@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.config;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.ipvp.canvas.slot.Slot;
+
+/**
+ * A registry of named click handlers.
+ *
+ * <p>Menu definitions refer to click handlers by key, which are resolved
+ * against a registry when the definition is compiled.
+ */
+public class ActionRegistry {
+
+    private final Map<String, Slot.ClickHandler> handlers = new HashMap<>();
+    private final Map<Slot.ClickHandler, String> keys = new IdentityHashMap<>();
+
+    /**
+     * Registers a click handler under a key.
+     *
+     * @param key action key
+     * @param handler click handler
+     * @return Fluent pattern
+     * @throws IllegalArgumentException if a handler is already registered for the key
+     */
+    public ActionRegistry register(String key, Slot.ClickHandler handler) {
+        Objects.requireNonNull(key, "key cannot be null");
+        Objects.requireNonNull(handler, "handler cannot be null");
+        if (handlers.putIfAbsent(key, handler) != null) {
+            throw new IllegalArgumentException("an action is already registered for key " + key);
+        }
+        keys.putIfAbsent(handler, key);
+        return this;
+    }
+
+    /**
+     * Removes the click handler registered under a key.
+     *
+     * @param key action key
+     */
+    public void unregister(String key) {
+        Slot.ClickHandler handler = handlers.remove(key);
+        if (handler != null && keys.remove(handler, key)) {
+            // The handler may still be registered under another key
+            handlers.forEach((k, h) -> {
+                if (h == handler) {
+                    keys.putIfAbsent(h, k);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the click handler registered under a key.
+     *
+     * @param key action key
+     * @return click handler, or null if no handler is registered
+     */
+    public Slot.ClickHandler get(String key) {
+        return handlers.get(key);
+    }
+
+    /**
+     * Returns the key a click handler is registered under.
+     *
+     * @param handler click handler
+     * @return action key, or null if the handler is not registered
+     */
+    public String getKey(Slot.ClickHandler handler) {
+        return keys.get(handler);
+    }
+
+    /**
+     * Returns whether a click handler is registered under a key.
+     *
+     * @param key action key
+     * @return true if a handler is registered, false otherwise
+     */
+    public boolean contains(String key) {
+        return handlers.containsKey(key);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.config;
+
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.type.AbstractMenu;
+import org.ipvp.canvas.type.MenuPrototype;
+
+/**
+ * A compiled menu definition.
+ *
+ * <p>Definitions are created by a {@link MenuDefinitionLoader} and are validated
+ * and fully built at load time. Creating a menu from a definition copies the
+ * precomputed slot state and performs no parsing or mask application.
+ */
+public final class MenuDefinition {
+
+    private final String name;
+    private final MenuPrototype prototype;
+
+    MenuDefinition(String name, MenuPrototype prototype) {
+        this.name = name;
+        this.prototype = prototype;
+    }
+
+    /**
+     * Returns the name of the definition.
+     *
+     * @return definition name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the dimensions of menus created from the definition.
+     *
+     * @return menu dimensions
+     */
+    public Menu.Dimension getDimensions() {
+        return prototype.getDimensions();
+    }
+
+    /**
+     * Returns the prototype backing the definition.
+     *
+     * @return menu prototype
+     */
+    public MenuPrototype getPrototype() {
+        return prototype;
+    }
+
+    /**
+     * Creates a new menu from the definition.
+     *
+     * @return new menu
+     */
+    public AbstractMenu newMenu() {
+        return prototype.newMenu();
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.mask.RecipeMask;
+import org.ipvp.canvas.slot.ClickOptions;
+import org.ipvp.canvas.slot.Slot;
+import org.ipvp.canvas.slot.SlotSettings;
+import org.ipvp.canvas.type.AbstractMenu;
+import org.ipvp.canvas.type.BoxMenu;
+import org.ipvp.canvas.type.ChestMenu;
+import org.ipvp.canvas.type.HopperMenu;
+import org.ipvp.canvas.type.MenuPrototype;
+
+/**
+ * Compiles declarative menu definitions from configuration.
+ *
+ * <p>Each definition is a configuration section in the following format:
+ * <pre>
+ * shop:
+ *   type: chest            # chest, hopper, workbench, dispenser or dropper
+ *   rows: 3                # chest menus only
+ *   title: "&amp;6Shop"
+ *   redraw: false
+ *   layout:                # one pattern per row, as in RecipeMaskBuilder#pattern
+ *     - "ggggggggg"
+ *     - "g000d000g"
+ *     - "ggggggggg"
+ *   items:
+ *     g:
+ *       material: STAINED_GLASS_PANE
+ *       data: 7
+ *       name: " "
+ *     d:
+ *       material: DIAMOND
+ *       amount: 1
+ *       name: "&amp;bDiamond"
+ *       lore: ["&amp;7Click to buy"]
+ *       click:             # optional, defaults to denying all clicks
+ *         types: [LEFT, RIGHT]
+ *         actions: [PICKUP_ALL]
+ *       action: buy-diamond
+ * </pre>
+ *
+ * <p>Layout characters {@code '0'} and {@code ' '} leave a slot empty, every other
+ * character must have an item defined. Action keys are resolved against the
+ * {@link ActionRegistry} passed to the loader, so all actions must be registered
+ * before definitions are compiled. Any problem with a definition is reported
+ * when it is compiled.
+ */
+public class MenuDefinitionLoader {
+
+    private final ActionRegistry actions;
+
+    public MenuDefinitionLoader(ActionRegistry actions) {
+        this.actions = Objects.requireNonNull(actions, "actions cannot be null");
+    }
+
+    /**
+     * Loads and compiles every menu definition found at the root of a YAML file.
+     *
+     * @param file configuration file
+     * @return compiled definitions by name, in file order
+     * @throws IOException if the file cannot be read
+     * @throws InvalidConfigurationException if the file or any definition is invalid
+     */
+    public Map<String, MenuDefinition> load(File file) throws IOException, InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        config.load(file);
+        return compileAll(config);
+    }
+
+    /**
+     * Compiles every menu definition that is a direct child of a section.
+     *
+     * @param root section containing definitions
+     * @return compiled definitions by name, in configuration order
+     * @throws InvalidConfigurationException if any definition is invalid
+     */
+    public Map<String, MenuDefinition> compileAll(ConfigurationSection root) throws InvalidConfigurationException {
+        Map<String, MenuDefinition> definitions = new LinkedHashMap<>();
+        for (String name : root.getKeys(false)) {
+            if (!root.isConfigurationSection(name)) {
+                throw new InvalidConfigurationException(name + ": expected a menu definition");
+            }
+            definitions.put(name, compile(name, root.getConfigurationSection(name)));
+        }
+        return definitions;
+    }
+
+    /**
+     * Compiles a single menu definition.
+     *
+     * @param name definition name
+     * @param section definition section
+     * @return compiled definition
+     * @throws InvalidConfigurationException if the definition is invalid
+     */
+    public MenuDefinition compile(String name, ConfigurationSection section) throws InvalidConfigurationException {
+        AbstractMenu.Builder<?> builder = createBuilder(name, section);
+        builder.title(color(section.getString("title")));
+        builder.redraw(section.getBoolean("redraw", false));
+
+        Menu.Dimension dimensions = builder.getDimensions();
+        List<String> layout = section.getStringList("layout");
+        if (layout.size() > dimensions.getRows()) {
+            throw new InvalidConfigurationException(name + ".layout: expected at most "
+                    + dimensions.getRows() + " rows but found " + layout.size());
+        }
+
+        ConfigurationSection items = section.getConfigurationSection("items");
+        RecipeMask.RecipeMaskBuilder mask = RecipeMask.builder(dimensions);
+        for (int row = 0 ; row < layout.size() ; row++) {
+            String pattern = layout.get(row);
+            if (pattern.length() != dimensions.getColumns()) {
+                throw new InvalidConfigurationException(name + ".layout[" + row + "]: expected "
+                        + dimensions.getColumns() + " columns but found " + pattern.length());
+            }
+            for (char character : pattern.toCharArray()) {
+                if (!isEmpty(character) && (items == null || !items.isConfigurationSection(String.valueOf(character)))) {
+                    throw new InvalidConfigurationException(name + ".layout[" + row + "]: no item defined for '"
+                            + character + "'");
+                }
+            }
+            mask.pattern(pattern);
+        }
+
+        if (items != null) {
+            for (String key : items.getKeys(false)) {
+                String path = name + ".items." + key;
+                if (key.length() != 1) {
+                    throw new InvalidConfigurationException(path + ": item keys must be a single character");
+                } else if (!items.isConfigurationSection(key)) {
+                    throw new InvalidConfigurationException(path + ": expected an item definition");
+                }
+                mask.item(key.charAt(0), parseSettings(path, items.getConfigurationSection(key)));
+            }
+        }
+
+        AbstractMenu menu = (AbstractMenu) builder.build();
+        menu.setMetricsName(name);
+        mask.build().apply(menu);
+        return new MenuDefinition(name, MenuPrototype.of(menu));
+    }
+
+    private AbstractMenu.Builder<?> createBuilder(String name, ConfigurationSection section)
+            throws InvalidConfigurationException {
+        String type = section.getString("type", "chest");
+        switch (type.toLowerCase()) {
+            case "chest":
+                int rows = section.getInt("rows", 0);
+                if (rows < 1 || rows > 6) {
+                    throw new InvalidConfigurationException(name + ".rows: must be a value from 1 to 6");
+                }
+                return ChestMenu.builder(rows);
+            case "hopper":
+                return HopperMenu.builder();
+            case "workbench":
+            case "dispenser":
+            case "dropper":
+                return BoxMenu.builder(InventoryType.valueOf(type.toUpperCase()));
+            default:
+                throw new InvalidConfigurationException(name + ".type: unknown menu type " + type);
+        }
+    }
+
+    private SlotSettings parseSettings(String path, ConfigurationSection section) throws InvalidConfigurationException {
+        SlotSettings.Builder settings = SlotSettings.builder()
+                .item(parseItem(path, section));
+
+        if (section.isConfigurationSection("click")) {
+            settings.clickOptions(parseClickOptions(path + ".click", section.getConfigurationSection("click")));
+        }
+
+        String action = section.getString("action");
+        if (action != null) {
+            Slot.ClickHandler handler = actions.get(action);
+            if (handler == null) {
+                throw new InvalidConfigurationException(path + ".action: no action registered for key " + action);
+            }
+            settings.clickHandler(handler);
+        }
+        return settings.build();
+    }
+
+    private ItemStack parseItem(String path, ConfigurationSection section) throws InvalidConfigurationException {
+        String materialName = section.getString("material");
+        if (materialName == null) {
+            throw new InvalidConfigurationException(path + ".material: must be set");
+        }
+        Material material = Material.matchMaterial(materialName);
+        if (material == null) {
+            throw new InvalidConfigurationException(path + ".material: unknown material " + materialName);
+        }
+
+        int amount = section.getInt("amount", 1);
+        if (amount < 1 || amount > 64) {
+            throw new InvalidConfigurationException(path + ".amount: must be a value from 1 to 64");
+        }
+
+        ItemStack item = new ItemStack(material, amount, (short) section.getInt("data", 0));
+        if (section.isSet("name") || section.isSet("lore")) {
+            ItemMeta meta = item.getItemMeta();
+            if (meta == null) {
+                throw new InvalidConfigurationException(path + ": " + material + " cannot have a name or lore");
+            }
+            if (section.isSet("name")) {
+                meta.setDisplayName(color(section.getString("name")));
+            }
+            if (section.isSet("lore")) {
+                List<String> lore = new ArrayList<>();
+                for (String line : section.getStringList("lore")) {
+                    lore.add(color(line));
+                }
+                meta.setLore(lore);
+            }
+            item.setItemMeta(meta);
+        }
+        return item;
+    }
+
+    private ClickOptions parseClickOptions(String path, ConfigurationSection section)
+            throws InvalidConfigurationException {
+        ClickOptions.Builder options = ClickOptions.builder();
+        if (section.getBoolean("allow-all", false)) {
+            options.allActions().allClickTypes();
+        }
+        for (String type : section.getStringList("types")) {
+            options.allow(parseEnum(path + ".types", ClickType.class, type));
+        }
+        for (String action : section.getStringList("actions")) {
+            options.allow(parseEnum(path + ".actions", InventoryAction.class, action));
+        }
+        return options.build();
+    }
+
+    private static <E extends Enum<E>> E parseEnum(String path, Class<E> type, String value)
+            throws InvalidConfigurationException {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException(path + ": unknown " + type.getSimpleName() + " " + value);
+        }
+    }
+
+    private static boolean isEmpty(char character) {
+        return character == '0' || character == ' ';
+    }
+
+    private static String color(String text) {
+        return text == null ? null : ChatColor.translateAlternateColorCodes('&', text);
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.slot.ClickOptions;
+import org.ipvp.canvas.slot.Slot;
+import org.ipvp.canvas.slot.SlotStore;
+import org.ipvp.canvas.template.ItemStackTemplate;
+import org.ipvp.canvas.template.StaticItemTemplate;
+import org.ipvp.canvas.type.AbstractMenu;
+import org.ipvp.canvas.type.BoxMenu;
+import org.ipvp.canvas.type.ChestMenu;
+import org.ipvp.canvas.type.HopperMenu;
+import org.ipvp.canvas.type.MenuPrototype;
+
+/**
+ * Serializes menu layouts into a compact binary format.
+ *
+ * <p>A serialized layout contains the type, dimensions, title and redraw flag of
+ * a menu along with the item, click options and click handler of every slot.
+ * Items are stored once per distinct item using Bukkit object serialization,
+ * click options are stored as bitmasks and click handlers are stored by their
+ * key in an {@link ActionRegistry} and rebound when the layout is read.
+ *
+ * <p>Only menus built by {@link ChestMenu}, {@link HopperMenu} or {@link BoxMenu}
+ * whose slots hold static items can be serialized. Close and cursor drop handlers
+ * are not part of the layout.
+ *
+ * <p>Many layouts can be written to a single file with {@link #write(Map, File)} and
+ * restored in bulk with {@link #read(File)}, which memory maps the file.
+ */
+public class MenuLayoutSerializer {
+
+    private static final int MAGIC = 0x434E5653; // CNVS
+    private static final short VERSION = 1;
+    private static final int NO_ENTRY = 0xFFFF;
+
+    private final ActionRegistry actions;
+
+    public MenuLayoutSerializer(ActionRegistry actions) {
+        this.actions = Objects.requireNonNull(actions, "actions cannot be null");
+    }
+
+    /**
+     * Serializes the layout of a menu. The layout is prefixed with a header
+     * identifying the format and server version so that {@link #deserialize(byte[])}
+     * can reject layouts written by an incompatible server.
+     *
+     * @param menu menu to serialize
+     * @return serialized layout
+     * @throws IOException if an item cannot be serialized
+     * @throws IllegalArgumentException if the menu cannot be serialized
+     */
+    public byte[] serialize(Menu menu) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeHeader(out);
+        writeLayout(out, menu);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores a menu from a serialized layout.
+     *
+     * @param layout serialized layout
+     * @return restored menu
+     * @throws IOException if the layout is malformed or was written by an incompatible server
+     */
+    public AbstractMenu deserialize(byte[] layout) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(layout);
+            readHeader(buffer, "layout");
+            return readLayout(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("layout is malformed", e);
+        }
+    }
+
+    /**
+     * Writes the layouts of several menus to a file, replacing any existing contents.
+     *
+     * @param menus menus by name
+     * @param file target file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if any menu cannot be serialized
+     */
+    public void write(Map<String, ? extends Menu> menus, File file) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(file.toPath())) {
+            DataOutputStream out = new DataOutputStream(stream);
+            writeHeader(out);
+            out.writeInt(menus.size());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (Map.Entry<String, ? extends Menu> entry : menus.entrySet()) {
+                // Layouts in a file share the file header
+                bytes.reset();
+                writeLayout(new DataOutputStream(bytes), entry.getValue());
+                writeString(out, entry.getKey());
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads all menu layouts from a file written by {@link #write(Map, File)}.
+     *
+     * @param file layout file
+     * @return prototypes of the restored menus by name, in file order
+     * @throws IOException if the file cannot be read, is malformed or was written by
+     *                     an incompatible server
+     */
+    public Map<String, MenuPrototype> read(File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            readHeader(buffer, file.toString());
+            int count = buffer.getInt();
+            Map<String, MenuPrototype> menus = new LinkedHashMap<>(count * 2);
+            for (int i = 0 ; i < count ; i++) {
+                String name = readString(buffer);
+                int length = buffer.getInt();
+                // Cast to Buffer so the class compiles against the Java 8 signatures on newer JDKs
+                ByteBuffer layout = buffer.slice();
+                ((Buffer) layout).limit(length);
+                menus.put(name, MenuPrototype.of(readLayout(layout)));
+                ((Buffer) buffer).position(buffer.position() + length);
+            }
+            return menus;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException(file + " is malformed", e);
+        }
+    }
+
+    private void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(enumSignature());
+    }
+
+    private void readHeader(ByteBuffer buffer, String source) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(source + " is not a menu layout");
+        } else if (buffer.getShort() != VERSION) {
+            throw new IOException(source + " was written by an unsupported version");
+        } else if (buffer.getInt() != enumSignature()) {
+            throw new IOException(source + " was written by an incompatible server version");
+        }
+    }
+
+    private void writeLayout(DataOutputStream out, Menu menu) throws IOException {
+        Class<?> type = menu.getClass();
+        if (type != ChestMenu.class && type != HopperMenu.class && type != BoxMenu.class) {
+            throw new IllegalArgumentException("cannot serialize menus of type " + type.getName());
+        }
+
+        AbstractMenu abstractMenu = (AbstractMenu) menu;
+        SlotStore store = abstractMenu.getSlotStore();
+        Map<StaticItemTemplate, Integer> items = new HashMap<>();
+        Map<ClickOptions, Integer> options = new IdentityHashMap<>();
+        Map<String, Integer> handlers = new HashMap<>();
+        List<ItemStack> itemPalette = new ArrayList<>();
+        List<ClickOptions> optionsPalette = new ArrayList<>();
+        List<String> handlerPalette = new ArrayList<>();
+        int[] slots = new int[store.size() * 3];
+
+        for (int i = 0 ; i < store.size() ; i++) {
+            ItemStackTemplate template = store.getTemplate(i);
+            if (template != null && !(template instanceof StaticItemTemplate)) {
+                throw new IllegalArgumentException("slot " + i + " does not have a static item");
+            }
+            StaticItemTemplate item = (StaticItemTemplate) template;
+            slots[i * 3] = item == null || item.getItem() == null ? NO_ENTRY
+                    : items.computeIfAbsent(item, t -> add(itemPalette, t.getItem()));
+            slots[i * 3 + 1] = options.computeIfAbsent(store.getClickOptions(i), o -> add(optionsPalette, o));
+
+            Slot.ClickHandler handler = store.getClickHandler(i);
+            if (handler == null) {
+                slots[i * 3 + 2] = NO_ENTRY;
+            } else {
+                String key = actions.getKey(handler);
+                if (key == null) {
+                    throw new IllegalArgumentException("click handler of slot " + i + " is not registered");
+                }
+                slots[i * 3 + 2] = handlers.computeIfAbsent(key, k -> add(handlerPalette, k));
+            }
+        }
+
+        writeString(out, abstractMenu.getType().name());
+        out.writeByte(menu.getDimensions().getRows());
+        writeString(out, abstractMenu.getTitle());
+        out.writeBoolean(menu.isRedraw());
+
+        out.writeShort(itemPalette.size());
+        if (!itemPalette.isEmpty()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (BukkitObjectOutputStream itemsOut = new BukkitObjectOutputStream(bytes)) {
+                itemsOut.writeObject(itemPalette.toArray(new ItemStack[0]));
+            }
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+
+        out.writeShort(optionsPalette.size());
+        for (ClickOptions clickOptions : optionsPalette) {
+            out.writeLong(actionMask(clickOptions));
+            out.writeLong(clickTypeMask(clickOptions));
+        }
+
+        out.writeShort(handlerPalette.size());
+        for (String key : handlerPalette) {
+            writeString(out, key);
+        }
+
+        out.writeShort(store.size());
+        for (int entry : slots) {
+            out.writeShort(entry);
+        }
+    }
+
+    private AbstractMenu readLayout(ByteBuffer in) throws IOException {
+        InventoryType type = InventoryType.valueOf(readString(in));
+        int rows = in.get();
+        String title = readString(in);
+        boolean redraw = in.get() != 0;
+
+        ItemStackTemplate[] items = new ItemStackTemplate[in.getShort() & 0xFFFF];
+        if (items.length > 0) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            try (BukkitObjectInputStream itemsIn = new BukkitObjectInputStream(new ByteArrayInputStream(bytes))) {
+                ItemStack[] palette = (ItemStack[]) itemsIn.readObject();
+                for (int i = 0 ; i < items.length ; i++) {
+                    items[i] = new StaticItemTemplate(palette[i]);
+                }
+            } catch (ClassNotFoundException | ClassCastException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("malformed item palette", e);
+            }
+        }
+
+        ClickOptions[] options = new ClickOptions[in.getShort() & 0xFFFF];
+        for (int i = 0 ; i < options.length ; i++) {
+            options[i] = clickOptions(in.getLong(), in.getLong());
+        }
+
+        Slot.ClickHandler[] handlers = new Slot.ClickHandler[in.getShort() & 0xFFFF];
+        for (int i = 0 ; i < handlers.length ; i++) {
+            String key = readString(in);
+            handlers[i] = actions.get(key);
+            if (handlers[i] == null) {
+                throw new IOException("no action registered for key " + key);
+            }
+        }
+
+        AbstractMenu.Builder<?> builder = builder(type, rows).title(title).redraw(redraw);
+        AbstractMenu menu = (AbstractMenu) builder.build();
+        SlotStore store = menu.getSlotStore();
+        int size = in.getShort() & 0xFFFF;
+        if (size != store.size()) {
+            throw new IOException("layout has " + size + " slots but menu has " + store.size());
+        }
+
+        try {
+            for (int i = 0 ; i < size ; i++) {
+                int item = in.getShort() & 0xFFFF;
+                int clickOptions = in.getShort() & 0xFFFF;
+                int handler = in.getShort() & 0xFFFF;
+                if (item != NO_ENTRY) {
+                    store.setTemplate(i, items[item]);
+                }
+                store.setClickOptions(i, options[clickOptions]);
+                if (handler != NO_ENTRY) {
+                    store.setClickHandler(i, handlers[handler]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("malformed slot table", e);
+        }
+        return menu;
+    }
+
+    private static AbstractMenu.Builder<?> builder(InventoryType type, int rows) {
+        switch (type) {
+            case CHEST:
+                return ChestMenu.builder(rows);
+            case HOPPER:
+                return HopperMenu.builder();
+            default:
+                return BoxMenu.builder(type);
+        }
+    }
+
+    private static <T> int add(List<T> palette, T value) {
+        palette.add(value);
+        return palette.size() - 1;
+    }
+
+    private static long actionMask(ClickOptions options) {
+        long mask = 0;
+        for (InventoryAction action : InventoryAction.values()) {
+            if (options.isAllowedAction(action)) {
+                mask |= bit(action);
+            }
+        }
+        return mask;
+    }
+
+    private static long clickTypeMask(ClickOptions options) {
+        long mask = 0;
+        for (ClickType clickType : ClickType.values()) {
+            if (options.isAllowedClickType(clickType)) {
+                mask |= bit(clickType);
+            }
+        }
+        return mask;
+    }
+
+    private static ClickOptions clickOptions(long actionMask, long clickTypeMask) {
+        if (actionMask == 0 && clickTypeMask == 0) {
+            return ClickOptions.DENY_ALL;
+        } else if (actionMask == actionMask(ClickOptions.ALLOW_ALL)
+                && clickTypeMask == clickTypeMask(ClickOptions.ALLOW_ALL)) {
+            return ClickOptions.ALLOW_ALL;
+        }
+
+        ClickOptions.Builder builder = ClickOptions.builder();
+        for (InventoryAction action : InventoryAction.values()) {
+            if ((actionMask & bit(action)) != 0) {
+                builder.allow(action);
+            }
+        }
+        for (ClickType clickType : ClickType.values()) {
+            if ((clickTypeMask & bit(clickType)) != 0) {
+                builder.allow(clickType);
+            }
+        }
+        return builder.build();
+    }
+
+    /* Shifts beyond 63 would wrap around and alias another constant, so they are rejected */
+    private static long bit(Enum<?> constant) {
+        if (constant.ordinal() >= Long.SIZE) {
+            throw new IllegalArgumentException("cannot store " + constant.getDeclaringClass().getSimpleName()
+                    + "." + constant.name() + " in a click option mask");
+        }
+        return 1L << constant.ordinal();
+    }
+
+    /* Bitmasks are only valid between servers that share the same enum constants */
+    private static int enumSignature() {
+        int hash = 1;
+        for (InventoryAction action : InventoryAction.values()) {
+            hash = 31 * hash + action.name().hashCode();
+        }
+        for (ClickType clickType : ClickType.values()) {
+            hash = 31 * hash + clickType.name().hashCode();
+        }
+        return hash;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(NO_ENTRY);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NO_ENTRY) {
+            throw new IllegalArgumentException("string is too long to serialize");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == NO_ENTRY) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.metrics;
+
+/**
+ * Holds the {@link MenuMetrics} that all menus report into.
+ */
+public final class CanvasMetrics {
+
+    private static volatile MenuMetrics metrics = MenuMetrics.NONE;
+
+    private CanvasMetrics() {
+
+    }
+
+    /**
+     * Returns the installed metrics.
+     *
+     * @return installed metrics, never null
+     */
+    public static MenuMetrics get() {
+        return metrics;
+    }
+
+    /**
+     * Installs the metrics that menus report into.
+     *
+     * @param metrics new metrics, or null to stop collecting metrics
+     */
+    public static void set(MenuMetrics metrics) {
+        CanvasMetrics.metrics = metrics == null ? MenuMetrics.NONE : metrics;
+    }
+
+    /**
+     * Returns whether any metrics are installed.
+     *
+     * @return true if measurements are being collected
+     */
+    public static boolean isEnabled() {
+        return metrics != MenuMetrics.NONE;
+    }
+}
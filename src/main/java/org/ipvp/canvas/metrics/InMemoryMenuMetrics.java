@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.bukkit.entity.Player;
+import org.ipvp.canvas.ClickInformation;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.slot.Slot;
+import org.ipvp.canvas.template.ItemStackTemplate;
+import org.ipvp.canvas.type.AbstractMenu;
+
+/**
+ * Metrics that are aggregated in memory per {@link AbstractMenu#getMetricsName() metrics name}
+ * of a menu. Menus without a name are grouped by class and size. Once the maximum
+ * amount of names is tracked, measurements of further names are combined into a
+ * single {@value #OTHER} entry.
+ *
+ * <p>All counters and histograms are lock-free, so recording a measurement
+ * never blocks the server thread. A copy of the collected values can be taken
+ * at any time with {@link #snapshot()}, written to a file with
+ * {@link #writeSnapshot(File)} or exposed over JMX with {@link #registerMBean()}.
+ */
+public class InMemoryMenuMetrics implements MenuMetrics, InMemoryMenuMetricsMXBean {
+
+    /**
+     * The name the metrics are registered under by {@link #registerMBean()}.
+     */
+    public static final String MBEAN_NAME = "org.ipvp.canvas:type=MenuMetrics";
+
+    /**
+     * The name measurements are recorded under once the maximum amount of names is tracked.
+     */
+    public static final String OTHER = "(other)";
+
+    private final ConcurrentMap<String, Stats> menus = new ConcurrentHashMap<>();
+    private final int maximumMenus;
+
+    public InMemoryMenuMetrics() {
+        this(256);
+    }
+
+    /**
+     * Creates metrics that track a limited amount of menu names.
+     *
+     * @param maximumMenus amount of names tracked before further names are recorded as {@link #OTHER}
+     */
+    public InMemoryMenuMetrics(int maximumMenus) {
+        if (maximumMenus < 1) {
+            throw new IllegalArgumentException("maximum menus must be positive");
+        }
+        this.maximumMenus = maximumMenus;
+    }
+
+    @Override
+    public void menuOpened(Menu menu, Player viewer, boolean redrawn) {
+        Stats stats = stats(menu);
+        stats.opens.increment();
+        (redrawn ? stats.redraws : stats.freshInventories).increment();
+    }
+
+    @Override
+    public void menuUpdated(Menu menu, Player viewer) {
+        stats(menu).updates.increment();
+    }
+
+    @Override
+    public void menuRendered(Menu menu, Player viewer, int rendered, int skipped) {
+        Stats stats = stats(menu);
+        stats.slotsRendered.add(rendered);
+        stats.slotsSkipped.add(skipped);
+    }
+
+    @Override
+    public void templateRendered(Menu menu, int slot, ItemStackTemplate template, long nanos) {
+        Stats stats = stats(menu);
+        stats.templates.record(nanos);
+        stats.slotTemplates.computeIfAbsent(slot, s -> new LatencyHistogram()).record(nanos);
+    }
+
+    @Override
+    public void clickDispatched(Menu menu, int slot, ClickInformation click, Slot.ClickHandler handler, long nanos) {
+        stats(menu).clicks.record(nanos);
+    }
+
+    @Override
+    public void handlerFailed(Menu menu, int slot, Slot.ClickHandler handler, Throwable error) {
+        stats(menu).handlerErrors.increment();
+    }
+
+    @Override
+    public void viewerAdded(Menu menu, Player viewer) {
+        stats(menu).viewers.increment();
+    }
+
+    @Override
+    public void viewerRemoved(Menu menu, Player viewer) {
+        stats(menu).viewers.decrement();
+    }
+
+    private Stats stats(Menu menu) {
+        String name = menu instanceof AbstractMenu ? ((AbstractMenu) menu).getMetricsName() : menu.getClass().getName();
+        Stats stats = menus.get(name);
+        if (stats == null) {
+            stats = menus.computeIfAbsent(menus.size() < maximumMenus ? name : OTHER, n -> new Stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Removes all collected values.
+     */
+    public void reset() {
+        menus.clear();
+    }
+
+    /**
+     * Returns a copy of the values collected so far.
+     *
+     * @return metrics snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, MetricsSnapshot.MenuEntry> entries = new TreeMap<>();
+        menus.forEach((name, stats) -> entries.put(name, stats.snapshot()));
+        return new MetricsSnapshot(System.currentTimeMillis(), entries);
+    }
+
+    /**
+     * Writes a snapshot of the collected values to a file in a human
+     * readable format, replacing any existing contents.
+     *
+     * @param file target file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(File file) throws IOException {
+        Files.write(file.toPath(), snapshot().toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under {@link #MBEAN_NAME}.
+     *
+     * @throws JMException if the metrics cannot be registered
+     */
+    public void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(MBEAN_NAME));
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server.
+     *
+     * @throws JMException if the metrics are not registered
+     */
+    public void unregisterMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(MBEAN_NAME));
+    }
+
+    @Override
+    public long getOpens() {
+        return sum(s -> s.opens.sum());
+    }
+
+    @Override
+    public long getRedraws() {
+        return sum(s -> s.redraws.sum());
+    }
+
+    @Override
+    public long getUpdates() {
+        return sum(s -> s.updates.sum());
+    }
+
+    @Override
+    public long getSlotsRendered() {
+        return sum(s -> s.slotsRendered.sum());
+    }
+
+    @Override
+    public long getSlotsSkipped() {
+        return sum(s -> s.slotsSkipped.sum());
+    }
+
+    @Override
+    public long getClicks() {
+        return sum(s -> s.clicks.snapshot().getCount());
+    }
+
+    @Override
+    public long getHandlerErrors() {
+        return sum(s -> s.handlerErrors.sum());
+    }
+
+    @Override
+    public long getViewers() {
+        return sum(s -> s.viewers.sum());
+    }
+
+    @Override
+    public String getSnapshot() {
+        return snapshot().toString();
+    }
+
+    private long sum(ToLongFunction<Stats> value) {
+        long sum = 0;
+        for (Stats stats : menus.values()) {
+            sum += value.applyAsLong(stats);
+        }
+        return sum;
+    }
+
+    /* Values collected for a single menu name */
+    private static final class Stats {
+
+        private final LongAdder opens = new LongAdder();
+        private final LongAdder redraws = new LongAdder();
+        private final LongAdder freshInventories = new LongAdder();
+        private final LongAdder updates = new LongAdder();
+        private final LongAdder slotsRendered = new LongAdder();
+        private final LongAdder slotsSkipped = new LongAdder();
+        private final LongAdder handlerErrors = new LongAdder();
+        private final LongAdder viewers = new LongAdder();
+        private final LatencyHistogram templates = new LatencyHistogram();
+        private final LatencyHistogram clicks = new LatencyHistogram();
+        private final ConcurrentMap<Integer, LatencyHistogram> slotTemplates = new ConcurrentHashMap<>();
+
+        MetricsSnapshot.MenuEntry snapshot() {
+            Map<Integer, LatencyHistogram.Snapshot> slots = new TreeMap<>();
+            slotTemplates.forEach((slot, histogram) -> slots.put(slot, histogram.snapshot()));
+            return new MetricsSnapshot.MenuEntry(opens.sum(), redraws.sum(), freshInventories.sum(), updates.sum(),
+                    slotsRendered.sum(), slotsSkipped.sum(), handlerErrors.sum(), viewers.sum(),
+                    templates.snapshot(), clicks.snapshot(), new LinkedHashMap<>(slots));
+        }
+    }
+}
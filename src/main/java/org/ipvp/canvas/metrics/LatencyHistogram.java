@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations with power of two buckets.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos)));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Returns a point in time copy of the histogram.
+     *
+     * @return histogram snapshot
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0 ; i < BUCKETS ; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, count.sum(), total.sum(), max.get());
+    }
+
+    /**
+     * An immutable copy of a histogram.
+     */
+    public static final class Snapshot {
+
+        private final long[] buckets;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] buckets, long count, long total, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * Returns the amount of recorded durations.
+         *
+         * @return sample count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of all recorded durations.
+         *
+         * @return total nanoseconds
+         */
+        public long getTotalNanos() {
+            return total;
+        }
+
+        /**
+         * Returns the mean recorded duration.
+         *
+         * @return mean nanoseconds
+         */
+        public long getMeanNanos() {
+            return count == 0 ? 0 : total / count;
+        }
+
+        /**
+         * Returns the longest recorded duration.
+         *
+         * @return max nanoseconds
+         */
+        public long getMaxNanos() {
+            return max;
+        }
+
+        /**
+         * Returns an upper bound for a percentile of the recorded durations.
+         * The value is accurate to within a factor of two.
+         *
+         * @param percentile percentile from 0 to 100
+         * @return percentile upper bound in nanoseconds
+         */
+        public long getPercentileNanos(double percentile) {
+            long sampleCount = 0;
+            for (long bucket : buckets) {
+                sampleCount += bucket;
+            }
+            long target = (long) Math.ceil(sampleCount * percentile / 100D);
+            long seen = 0;
+            for (int i = 0 ; i < buckets.length ; i++) {
+                seen += buckets[i];
+                if (seen >= target && seen > 0) {
+                    return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", count,
+                    getMeanNanos() / 1e6, getPercentileNanos(50) / 1e6, getPercentileNanos(99) / 1e6, max / 1e6);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.metrics;
+
+import org.bukkit.entity.Player;
+import org.ipvp.canvas.ClickInformation;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.slot.Slot;
+import org.ipvp.canvas.template.ItemStackTemplate;
+
+/**
+ * Receives measurements about the work performed by menus.
+ *
+ * <p>Menus and the {@link org.ipvp.canvas.MenuFunctionListener} report into the
+ * metrics installed with {@link CanvasMetrics#set(MenuMetrics)}. All methods are
+ * called on the thread performing the work, which is usually the server thread,
+ * so implementations must be cheap and must not block.
+ */
+public interface MenuMetrics {
+
+    /**
+     * Metrics that ignore all measurements. When installed, menus skip
+     * taking timings altogether.
+     */
+    MenuMetrics NONE = new MenuMetrics() {};
+
+    /**
+     * Returns whether the next template evaluation or click dispatch should
+     * be timed. Implementations may return false to sample only a fraction
+     * of operations, in which case {@link #templateRendered(Menu, int, ItemStackTemplate, long)}
+     * and {@link #clickDispatched(Menu, int, ClickInformation, Slot.ClickHandler, long)}
+     * are only called for sampled operations.
+     *
+     * @return true to time the next operation
+     */
+    default boolean shouldSample() {
+        return true;
+    }
+
+    /**
+     * Called before a menu is opened for a player. The returned span is ended
+     * once the menu was opened, after {@link #menuOpened(Menu, Player, boolean)}.
+     *
+     * @param menu menu being opened
+     * @param viewer player the menu is opened for
+     * @return span covering the open
+     */
+    default Span beginOpen(Menu menu, Player viewer) {
+        return Span.NONE;
+    }
+
+    /**
+     * Called before the contents of a menu are rendered for a player. The returned
+     * span is ended once rendering finished, after {@link #menuRendered(Menu, Player, int, int)}.
+     *
+     * @param menu menu being rendered
+     * @param viewer player the contents are rendered for
+     * @return span covering the render
+     */
+    default Span beginRender(Menu menu, Player viewer) {
+        return Span.NONE;
+    }
+
+    /**
+     * Called before a click on a slot is dispatched to its click handler. The returned
+     * span is ended once the click was dispatched, after
+     * {@link #clickDispatched(Menu, int, ClickInformation, Slot.ClickHandler, long)}
+     * if the click was sampled.
+     *
+     * @param menu clicked menu
+     * @param slot slot index
+     * @param click information about the click
+     * @param handler click handler of the slot, or null if the slot has no handler
+     * @return span covering the dispatch
+     */
+    default Span beginClick(Menu menu, int slot, ClickInformation click, Slot.ClickHandler handler) {
+        return Span.NONE;
+    }
+
+    /**
+     * Called when a menu is opened for a player.
+     *
+     * @param menu opened menu
+     * @param viewer player the menu was opened for
+     * @param redrawn true if the contents were drawn into the inventory the player
+     *                already had open, false if a new inventory was opened
+     */
+    default void menuOpened(Menu menu, Player viewer, boolean redrawn) {
+
+    }
+
+    /**
+     * Called when a menu is updated for a player that is viewing it.
+     *
+     * @param menu updated menu
+     * @param viewer player viewing the menu
+     */
+    default void menuUpdated(Menu menu, Player viewer) {
+
+    }
+
+    /**
+     * Called after the contents of a menu were rendered for a player.
+     *
+     * @param menu rendered menu
+     * @param viewer player the contents were rendered for
+     * @param rendered amount of slots whose template was evaluated
+     * @param skipped amount of slots that were not evaluated
+     */
+    default void menuRendered(Menu menu, Player viewer, int rendered, int skipped) {
+
+    }
+
+    /**
+     * Called after the template of a slot was evaluated.
+     *
+     * @param menu menu containing the slot
+     * @param slot slot index
+     * @param template evaluated template
+     * @param nanos evaluation time in nanoseconds
+     */
+    default void templateRendered(Menu menu, int slot, ItemStackTemplate template, long nanos) {
+
+    }
+
+    /**
+     * Called after a click on a slot was dispatched, including the time spent
+     * in the click handler of the slot.
+     *
+     * @param menu clicked menu
+     * @param slot slot index
+     * @param click information about the click
+     * @param handler click handler of the slot, or null if the slot has no handler
+     * @param nanos dispatch time in nanoseconds
+     */
+    default void clickDispatched(Menu menu, int slot, ClickInformation click, Slot.ClickHandler handler, long nanos) {
+
+    }
+
+    /**
+     * Called when a click handler throws an exception.
+     *
+     * @param menu clicked menu
+     * @param slot slot index
+     * @param handler failing click handler
+     * @param error thrown exception
+     */
+    default void handlerFailed(Menu menu, int slot, Slot.ClickHandler handler, Throwable error) {
+
+    }
+
+    /**
+     * Called when a player starts viewing a menu.
+     *
+     * @param menu viewed menu
+     * @param viewer player
+     */
+    default void viewerAdded(Menu menu, Player viewer) {
+
+    }
+
+    /**
+     * Called when a player stops viewing a menu.
+     *
+     * @param menu menu that was viewed
+     * @param viewer player
+     */
+    default void viewerRemoved(Menu menu, Player viewer) {
+
+    }
+
+    /**
+     * An operation in progress, ended on the thread that began it.
+     */
+    @FunctionalInterface
+    interface Span {
+
+        /**
+         * Span that does nothing when ended.
+         */
+        Span NONE = () -> {};
+
+        /**
+         * Ends the operation.
+         */
+        void end();
+    }
+}
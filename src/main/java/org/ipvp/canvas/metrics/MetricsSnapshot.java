@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.metrics;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A point in time copy of the values collected by {@link InMemoryMenuMetrics}.
+ */
+public final class MetricsSnapshot {
+
+    private final long timestamp;
+    private final Map<String, MenuEntry> menus;
+
+    MetricsSnapshot(long timestamp, Map<String, MenuEntry> menus) {
+        this.timestamp = timestamp;
+        this.menus = Collections.unmodifiableMap(menus);
+    }
+
+    /**
+     * Returns the time the snapshot was taken at.
+     *
+     * @return epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the collected values of each menu, keyed by the metrics name of the menus.
+     *
+     * @see org.ipvp.canvas.type.AbstractMenu#getMetricsName()
+     *
+     * @return values per menu
+     */
+    public Map<String, MenuEntry> getMenus() {
+        return menus;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("canvas metrics at ").append(Instant.ofEpochMilli(timestamp));
+        menus.forEach((name, entry) -> {
+            builder.append("\n\n[").append(name).append("]");
+            builder.append("\nopens=").append(entry.opens)
+                    .append(" redraws=").append(entry.redraws)
+                    .append(" fresh=").append(entry.freshInventories)
+                    .append(" updates=").append(entry.updates)
+                    .append(" viewers=").append(entry.viewers);
+            builder.append("\nslots rendered=").append(entry.slotsRendered)
+                    .append(" skipped=").append(entry.slotsSkipped);
+            builder.append("\ntemplates ").append(entry.templates);
+            builder.append("\nclicks ").append(entry.clicks)
+                    .append(" errors=").append(entry.handlerErrors);
+            entry.slotTemplates.forEach((slot, histogram) ->
+                    builder.append("\n  slot ").append(slot).append(' ').append(histogram));
+        });
+        return builder.toString();
+    }
+
+    /**
+     * The values collected for menus with a single metrics name.
+     */
+    public static final class MenuEntry {
+
+        private final long opens;
+        private final long redraws;
+        private final long freshInventories;
+        private final long updates;
+        private final long slotsRendered;
+        private final long slotsSkipped;
+        private final long handlerErrors;
+        private final long viewers;
+        private final LatencyHistogram.Snapshot templates;
+        private final LatencyHistogram.Snapshot clicks;
+        private final Map<Integer, LatencyHistogram.Snapshot> slotTemplates;
+
+        MenuEntry(long opens, long redraws, long freshInventories, long updates, long slotsRendered,
+                  long slotsSkipped, long handlerErrors, long viewers, LatencyHistogram.Snapshot templates,
+                  LatencyHistogram.Snapshot clicks, Map<Integer, LatencyHistogram.Snapshot> slotTemplates) {
+            this.opens = opens;
+            this.redraws = redraws;
+            this.freshInventories = freshInventories;
+            this.updates = updates;
+            this.slotsRendered = slotsRendered;
+            this.slotsSkipped = slotsSkipped;
+            this.handlerErrors = handlerErrors;
+            this.viewers = viewers;
+            this.templates = templates;
+            this.clicks = clicks;
+            this.slotTemplates = Collections.unmodifiableMap(slotTemplates);
+        }
+
+        public long getOpens() {
+            return opens;
+        }
+
+        /**
+         * @return opens that reused the inventory the player already had open
+         */
+        public long getRedraws() {
+            return redraws;
+        }
+
+        /**
+         * @return opens that opened a new inventory
+         */
+        public long getFreshInventories() {
+            return freshInventories;
+        }
+
+        public long getUpdates() {
+            return updates;
+        }
+
+        public long getSlotsRendered() {
+            return slotsRendered;
+        }
+
+        public long getSlotsSkipped() {
+            return slotsSkipped;
+        }
+
+        public long getHandlerErrors() {
+            return handlerErrors;
+        }
+
+        /**
+         * @return players currently viewing menus with this name
+         */
+        public long getViewers() {
+            return viewers;
+        }
+
+        /**
+         * @return template evaluation times across all slots
+         */
+        public LatencyHistogram.Snapshot getTemplates() {
+            return templates;
+        }
+
+        /**
+         * @return click dispatch times
+         */
+        public LatencyHistogram.Snapshot getClicks() {
+            return clicks;
+        }
+
+        /**
+         * @return template evaluation times per slot index
+         */
+        public Map<Integer, LatencyHistogram.Snapshot> getSlotTemplates() {
+            return slotTemplates;
+        }
+    }
+}
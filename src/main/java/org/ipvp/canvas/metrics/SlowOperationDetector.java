@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.bukkit.entity.Player;
+import org.ipvp.canvas.ClickInformation;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.slot.Slot;
+import org.ipvp.canvas.template.ItemStackTemplate;
+import org.ipvp.canvas.type.AbstractMenu;
+
+/**
+ * Metrics that detect slow item templates and click handlers.
+ *
+ * <p>Only one in every {@link Builder#sampleInterval(int) sample interval} template
+ * evaluations and click dispatches is timed. When a timed operation exceeds its
+ * threshold a warning naming the menu title, slot index and template or handler
+ * class is logged. The slowest operations detected so far are kept, up to the
+ * {@link Builder#capacity(int) capacity} of the detector, and can be queried with
+ * {@link #getSlowOperations()}.
+ *
+ * <p>All measurements are forwarded to a delegate so the detector can be combined
+ * with other metrics such as {@link InMemoryMenuMetrics}. Timings received by the
+ * delegate are subject to the same sampling.
+ */
+public class SlowOperationDetector implements MenuMetrics {
+
+    private static final int MAXIMUM_WARNINGS = 1024;
+
+    private final MenuMetrics delegate;
+    private final Logger logger;
+    private final int sampleInterval;
+    private final long templateThreshold;
+    private final long clickThreshold;
+    private final long warningCooldown;
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final int capacity;
+    private final PriorityQueue<SlowOperation> slowOperations; // Fastest kept operation at the head
+    private final ConcurrentMap<String, Long> lastWarnings = new ConcurrentHashMap<>();
+
+    private SlowOperationDetector(Builder builder) {
+        this.delegate = builder.delegate;
+        this.logger = builder.logger;
+        this.sampleInterval = builder.sampleInterval;
+        this.templateThreshold = builder.templateThreshold;
+        this.clickThreshold = builder.clickThreshold;
+        this.warningCooldown = builder.warningCooldown;
+        this.capacity = builder.capacity;
+        this.slowOperations = new PriorityQueue<>(capacity, Comparator.comparingLong(SlowOperation::getNanos));
+    }
+
+    @Override
+    public boolean shouldSample() {
+        return samples.getAndIncrement() % sampleInterval == 0;
+    }
+
+    @Override
+    public void templateRendered(Menu menu, int slot, ItemStackTemplate template, long nanos) {
+        if (nanos >= templateThreshold) {
+            report(SlowOperation.Type.TEMPLATE, menu, slot, template.getClass(), nanos);
+        }
+        delegate.templateRendered(menu, slot, template, nanos);
+    }
+
+    @Override
+    public void clickDispatched(Menu menu, int slot, ClickInformation click, Slot.ClickHandler handler, long nanos) {
+        if (nanos >= clickThreshold) {
+            report(SlowOperation.Type.CLICK_HANDLER, menu, slot, handler == null ? null : handler.getClass(), nanos);
+        }
+        delegate.clickDispatched(menu, slot, click, handler, nanos);
+    }
+
+    private void report(SlowOperation.Type type, Menu menu, int slot, Class<?> source, long nanos) {
+        String title = menu instanceof AbstractMenu ? ((AbstractMenu) menu).getTitle() : menu.getClass().getName();
+        String sourceName = source == null ? "none" : source.getName();
+        SlowOperation operation = new SlowOperation(type, title, slot, sourceName, nanos, System.currentTimeMillis());
+        recorded.incrementAndGet();
+        synchronized (slowOperations) {
+            if (slowOperations.size() < capacity) {
+                slowOperations.add(operation);
+            } else if (slowOperations.peek().getNanos() < nanos) {
+                slowOperations.poll();
+                slowOperations.add(operation);
+            }
+        }
+
+        // Only warn about the same slot once per cooldown so a slow template does not flood the log.
+        // Slots are keyed by menu name rather than title, which may differ for every viewer
+        String name = menu instanceof AbstractMenu ? ((AbstractMenu) menu).getMetricsName() : menu.getClass().getName();
+        String key = type + ":" + name + ":" + slot;
+        long now = operation.getTimestamp();
+        if (lastWarnings.size() >= MAXIMUM_WARNINGS) {
+            // Slow operations are rare, so expired entries are only swept once many are tracked
+            lastWarnings.values().removeIf(last -> now - last >= warningCooldown);
+        }
+        Long last = lastWarnings.get(key);
+        boolean warn = last == null ? lastWarnings.putIfAbsent(key, now) == null
+                : now - last >= warningCooldown && lastWarnings.replace(key, last, now);
+        if (warn) {
+            logger.warning(operation.toString());
+        }
+    }
+
+    /**
+     * Returns the slowest operations detected so far, slowest first.
+     *
+     * @return slowest operations
+     */
+    public List<SlowOperation> getSlowOperations() {
+        List<SlowOperation> operations;
+        synchronized (slowOperations) {
+            operations = new ArrayList<>(slowOperations);
+        }
+        operations.sort(Comparator.comparingLong(SlowOperation::getNanos).reversed());
+        return operations;
+    }
+
+    /**
+     * Returns the total amount of slow operations detected.
+     *
+     * @return slow operation count
+     */
+    public long getSlowOperationCount() {
+        return recorded.get();
+    }
+
+    @Override
+    public Span beginOpen(Menu menu, Player viewer) {
+        return delegate.beginOpen(menu, viewer);
+    }
+
+    @Override
+    public Span beginRender(Menu menu, Player viewer) {
+        return delegate.beginRender(menu, viewer);
+    }
+
+    @Override
+    public Span beginClick(Menu menu, int slot, ClickInformation click, Slot.ClickHandler handler) {
+        return delegate.beginClick(menu, slot, click, handler);
+    }
+
+    @Override
+    public void menuOpened(Menu menu, Player viewer, boolean redrawn) {
+        delegate.menuOpened(menu, viewer, redrawn);
+    }
+
+    @Override
+    public void menuUpdated(Menu menu, Player viewer) {
+        delegate.menuUpdated(menu, viewer);
+    }
+
+    @Override
+    public void menuRendered(Menu menu, Player viewer, int rendered, int skipped) {
+        delegate.menuRendered(menu, viewer, rendered, skipped);
+    }
+
+    @Override
+    public void handlerFailed(Menu menu, int slot, Slot.ClickHandler handler, Throwable error) {
+        delegate.handlerFailed(menu, slot, handler, error);
+    }
+
+    @Override
+    public void viewerAdded(Menu menu, Player viewer) {
+        delegate.viewerAdded(menu, viewer);
+    }
+
+    @Override
+    public void viewerRemoved(Menu menu, Player viewer) {
+        delegate.viewerRemoved(menu, viewer);
+    }
+
+    /**
+     * Returns a new builder.
+     *
+     * @param logger logger to write warnings to
+     * @return builder instance
+     */
+    public static Builder builder(Logger logger) {
+        return new Builder(logger);
+    }
+
+    /**
+     * An operation that exceeded its threshold.
+     */
+    public static final class SlowOperation {
+
+        /**
+         * The kind of operation that was slow.
+         */
+        public enum Type {
+            TEMPLATE,
+            CLICK_HANDLER
+        }
+
+        private final Type type;
+        private final String menuTitle;
+        private final int slot;
+        private final String source;
+        private final long nanos;
+        private final long timestamp;
+
+        SlowOperation(Type type, String menuTitle, int slot, String source, long nanos, long timestamp) {
+            this.type = type;
+            this.menuTitle = menuTitle;
+            this.slot = slot;
+            this.source = source;
+            this.nanos = nanos;
+            this.timestamp = timestamp;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getMenuTitle() {
+            return menuTitle;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        /**
+         * @return class name of the template or click handler
+         */
+        public String getSource() {
+            return source;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return epoch milliseconds the operation was detected at
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Slow %s in menu '%s' slot %d (%s) took %.2fms",
+                    type == Type.TEMPLATE ? "item template" : "click handler", menuTitle, slot, source, nanos / 1e6);
+        }
+    }
+
+    /**
+     * A builder for creating a SlowOperationDetector instance.
+     */
+    public static class Builder {
+
+        private final Logger logger;
+        private MenuMetrics delegate = MenuMetrics.NONE;
+        private int sampleInterval = 16;
+        private long templateThreshold = TimeUnit.MILLISECONDS.toNanos(1);
+        private long clickThreshold = TimeUnit.MILLISECONDS.toNanos(5);
+        private long warningCooldown = TimeUnit.SECONDS.toMillis(30);
+        private int capacity = 64;
+
+        private Builder(Logger logger) {
+            this.logger = Objects.requireNonNull(logger, "logger cannot be null");
+        }
+
+        /**
+         * Sets the metrics that all measurements are forwarded to.
+         *
+         * @param delegate delegate metrics
+         * @return Fluent pattern
+         */
+        public Builder delegate(MenuMetrics delegate) {
+            this.delegate = delegate == null ? MenuMetrics.NONE : delegate;
+            return this;
+        }
+
+        /**
+         * Sets how often operations are timed. An interval of 1 times every operation.
+         *
+         * @param sampleInterval amount of operations per timed operation
+         * @return Fluent pattern
+         */
+        public Builder sampleInterval(int sampleInterval) {
+            if (sampleInterval < 1) {
+                throw new IllegalArgumentException("sample interval must be positive");
+            }
+            this.sampleInterval = sampleInterval;
+            return this;
+        }
+
+        /**
+         * Sets the time after which an item template evaluation is considered slow.
+         *
+         * @param threshold threshold
+         * @param unit threshold unit
+         * @return Fluent pattern
+         */
+        public Builder templateThreshold(long threshold, TimeUnit unit) {
+            this.templateThreshold = unit.toNanos(threshold);
+            return this;
+        }
+
+        /**
+         * Sets the time after which a click dispatch is considered slow.
+         *
+         * @param threshold threshold
+         * @param unit threshold unit
+         * @return Fluent pattern
+         */
+        public Builder clickThreshold(long threshold, TimeUnit unit) {
+            this.clickThreshold = unit.toNanos(threshold);
+            return this;
+        }
+
+        /**
+         * Sets the minimum time between two warnings for the same slot.
+         *
+         * @param cooldown cooldown
+         * @param unit cooldown unit
+         * @return Fluent pattern
+         */
+        public Builder warningCooldown(long cooldown, TimeUnit unit) {
+            this.warningCooldown = unit.toMillis(cooldown);
+            return this;
+        }
+
+        /**
+         * Sets the amount of slowest operations kept by the detector.
+         *
+         * @param capacity amount of operations kept
+         * @return Fluent pattern
+         */
+        public Builder capacity(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity must be positive");
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Builds the detector from the provided data.
+         *
+         * @return slow operation detector
+         */
+        public SlowOperationDetector build() {
+            return new SlowOperationDetector(this);
+        }
+    }
+}
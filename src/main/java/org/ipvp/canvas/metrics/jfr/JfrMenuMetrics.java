@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.metrics.jfr;
+
+import jdk.jfr.EventType;
+
+import org.bukkit.entity.Player;
+import org.ipvp.canvas.ClickInformation;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.metrics.MenuMetrics;
+import org.ipvp.canvas.slot.Slot;
+import org.ipvp.canvas.template.ItemStackTemplate;
+import org.ipvp.canvas.type.AbstractMenu;
+
+/**
+ * Metrics that emit Java Flight Recorder events for menu opens, renders and
+ * slot clicks.
+ *
+ * <p>Events begin before the menu is opened or rendered or the click is
+ * dispatched, and are committed once the work finished, so their duration
+ * covers the work itself and lines up with other samples in a recording.
+ * Events are only created when they are enabled in a running recording, so
+ * installing these metrics costs next to nothing while nothing is recording.
+ * While slot click events are recorded every click is timed so their handler
+ * duration is filled in, but the delegate still only receives the timings of
+ * operations it sampled itself.
+ *
+ * <p>Requires a Java runtime with the {@code jdk.jfr} module, which is the case
+ * for Java 11 and later.
+ */
+public class JfrMenuMetrics implements MenuMetrics {
+
+    private static final EventType MENU_OPEN = EventType.getEventType(MenuOpenEvent.class);
+    private static final EventType MENU_RENDER = EventType.getEventType(MenuRenderEvent.class);
+    private static final EventType SLOT_CLICK = EventType.getEventType(SlotClickEvent.class);
+
+    private final MenuMetrics delegate;
+    // Events in progress on each thread, filled in by the callbacks that follow their begin
+    private final ThreadLocal<MenuOpenEvent> openEvent = new ThreadLocal<>();
+    private final ThreadLocal<MenuRenderEvent> renderEvent = new ThreadLocal<>();
+    private final ThreadLocal<SlotClickEvent> clickEvent = new ThreadLocal<>();
+    // Whether the delegate sampled the last operation and the click in progress on each thread
+    private final ThreadLocal<Boolean> sampled = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> clickSampled = new ThreadLocal<>();
+
+    public JfrMenuMetrics() {
+        this(MenuMetrics.NONE);
+    }
+
+    /**
+     * Creates metrics that emit events and forward all measurements to a delegate.
+     *
+     * @param delegate delegate metrics
+     */
+    public JfrMenuMetrics(MenuMetrics delegate) {
+        this.delegate = delegate == null ? MenuMetrics.NONE : delegate;
+    }
+
+    @Override
+    public boolean shouldSample() {
+        // Click events need the handler duration, the delegate only receives what it sampled
+        boolean delegateSampled = delegate != MenuMetrics.NONE && delegate.shouldSample();
+        sampled.set(delegateSampled);
+        return delegateSampled || SLOT_CLICK.isEnabled();
+    }
+
+    @Override
+    public Span beginOpen(Menu menu, Player viewer) {
+        Span delegated = delegate.beginOpen(menu, viewer);
+        if (!MENU_OPEN.isEnabled()) {
+            return delegated;
+        }
+
+        MenuOpenEvent event = new MenuOpenEvent();
+        event.menuTitle = getTitle(menu);
+        event.menuType = getType(menu);
+        event.viewer = viewer.getName();
+        MenuOpenEvent previous = openEvent.get();
+        openEvent.set(event);
+        event.begin();
+        return () -> {
+            event.end();
+            openEvent.set(previous);
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+            delegated.end();
+        };
+    }
+
+    @Override
+    public Span beginRender(Menu menu, Player viewer) {
+        Span delegated = delegate.beginRender(menu, viewer);
+        if (!MENU_RENDER.isEnabled()) {
+            return delegated;
+        }
+
+        MenuRenderEvent event = new MenuRenderEvent();
+        event.menuTitle = getTitle(menu);
+        event.menuType = getType(menu);
+        event.viewer = viewer.getName();
+        MenuRenderEvent previous = renderEvent.get();
+        renderEvent.set(event);
+        event.begin();
+        return () -> {
+            event.end();
+            renderEvent.set(previous);
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+            delegated.end();
+        };
+    }
+
+    @Override
+    public Span beginClick(Menu menu, int slot, ClickInformation click, Slot.ClickHandler handler) {
+        Span delegated = delegate.beginClick(menu, slot, click, handler);
+        if (!SLOT_CLICK.isEnabled()) {
+            return delegated;
+        }
+
+        SlotClickEvent event = new SlotClickEvent();
+        event.menuTitle = getTitle(menu);
+        event.slot = slot;
+        event.action = click.getAction().name();
+        event.clickType = click.getClickType().name();
+        event.handler = handler == null ? null : handler.getClass().getName();
+        SlotClickEvent previous = clickEvent.get();
+        Boolean previousSampled = clickSampled.get();
+        clickEvent.set(event);
+        clickSampled.set(sampled.get());
+        event.begin();
+        return () -> {
+            event.end();
+            clickEvent.set(previous);
+            clickSampled.set(previousSampled);
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+            delegated.end();
+        };
+    }
+
+    @Override
+    public void menuOpened(Menu menu, Player viewer, boolean redrawn) {
+        MenuOpenEvent event = openEvent.get();
+        if (event != null) {
+            event.redrawn = redrawn;
+        }
+        delegate.menuOpened(menu, viewer, redrawn);
+    }
+
+    @Override
+    public void menuRendered(Menu menu, Player viewer, int rendered, int skipped) {
+        MenuRenderEvent event = renderEvent.get();
+        if (event != null) {
+            event.renderedSlots = rendered;
+            event.skippedSlots = skipped;
+        }
+        delegate.menuRendered(menu, viewer, rendered, skipped);
+    }
+
+    @Override
+    public void clickDispatched(Menu menu, int slot, ClickInformation click, Slot.ClickHandler handler, long nanos) {
+        SlotClickEvent event = clickEvent.get();
+        if (event != null) {
+            event.handlerDuration = nanos;
+            if (clickSampled.get() != Boolean.TRUE) {
+                return;
+            }
+        }
+        delegate.clickDispatched(menu, slot, click, handler, nanos);
+    }
+
+    @Override
+    public void menuUpdated(Menu menu, Player viewer) {
+        delegate.menuUpdated(menu, viewer);
+    }
+
+    @Override
+    public void templateRendered(Menu menu, int slot, ItemStackTemplate template, long nanos) {
+        if (sampled.get() == Boolean.TRUE) {
+            delegate.templateRendered(menu, slot, template, nanos);
+        }
+    }
+
+    @Override
+    public void handlerFailed(Menu menu, int slot, Slot.ClickHandler handler, Throwable error) {
+        delegate.handlerFailed(menu, slot, handler, error);
+    }
+
+    @Override
+    public void viewerAdded(Menu menu, Player viewer) {
+        delegate.viewerAdded(menu, viewer);
+    }
+
+    @Override
+    public void viewerRemoved(Menu menu, Player viewer) {
+        delegate.viewerRemoved(menu, viewer);
+    }
+
+    private static String getTitle(Menu menu) {
+        return menu instanceof AbstractMenu ? ((AbstractMenu) menu).getTitle() : null;
+    }
+
+    private static String getType(Menu menu) {
+        return menu instanceof AbstractMenu ? ((AbstractMenu) menu).getType().name() : menu.getClass().getSimpleName();
+    }
+}
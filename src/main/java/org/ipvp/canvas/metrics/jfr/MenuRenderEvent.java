@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event emitted when the contents of a menu are rendered
+ * for a player, either because the menu was opened or updated.
+ */
+@Name("org.ipvp.canvas.MenuRender")
+@Label("Menu Render")
+@Category({"Canvas", "Menu"})
+@Description("The contents of a menu were rendered for a player")
+@StackTrace(false)
+public final class MenuRenderEvent extends jdk.jfr.Event {
+
+    @Label("Menu Title")
+    String menuTitle;
+
+    @Label("Menu Type")
+    String menuType;
+
+    @Label("Viewer")
+    String viewer;
+
+    @Label("Rendered Slots")
+    @Description("Amount of slots whose item template was evaluated")
+    int renderedSlots;
+
+    @Label("Skipped Slots")
+    @Description("Amount of slots that were not evaluated")
+    int skippedSlots;
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event emitted when a click on a menu slot is dispatched.
+ */
+@Name("org.ipvp.canvas.SlotClick")
+@Label("Slot Click")
+@Category({"Canvas", "Menu"})
+@Description("A click on a menu slot was dispatched to its click handler")
+@StackTrace(false)
+public final class SlotClickEvent extends jdk.jfr.Event {
+
+    @Label("Menu Title")
+    String menuTitle;
+
+    @Label("Slot")
+    int slot;
+
+    @Label("Action")
+    String action;
+
+    @Label("Click Type")
+    String clickType;
+
+    @Label("Handler")
+    @Description("Class of the click handler, or null if the slot has no handler")
+    String handler;
+
+    @Label("Handler Duration")
+    @Description("Time measured by the delegate metrics, only recorded for clicks the delegate sampled")
+    @Timespan(Timespan.NANOSECONDS)
+    long handlerDuration;
+}
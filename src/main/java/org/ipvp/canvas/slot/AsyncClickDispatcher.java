@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.slot;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.plugin.Plugin;
+import org.ipvp.canvas.ClickInformation;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.metrics.CanvasMetrics;
+
+/**
+ * Runs {@link AsyncClickHandler}s off the server thread.
+ * <p>
+ * Clicks of a single player are handled one after another in the order they
+ * were made, while clicks of different players are handled concurrently. Once
+ * a handler completes, the task it returns is run on the server thread.
+ * <p>
+ * While a click on a slot is being handled, further clicks by the same player
+ * on that slot are denied and ignored. This stops players from, for example,
+ * buying an item twice by clicking a purchase button repeatedly.
+ */
+public class AsyncClickDispatcher {
+
+    private final Executor async;
+    private final Executor sync;
+    private final Logger logger;
+    private final ConcurrentMap<UUID, CompletableFuture<Void>> queues = new ConcurrentHashMap<>();
+    private final Set<PendingClick> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a dispatcher that runs handlers with the Bukkit scheduler.
+     *
+     * @param plugin plugin to schedule tasks for
+     */
+    public AsyncClickDispatcher(Plugin plugin) {
+        this(task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task),
+                task -> Bukkit.getScheduler().runTask(plugin, task),
+                plugin.getLogger());
+    }
+
+    /**
+     * Creates a dispatcher that runs handlers with the provided executors.
+     *
+     * @param async executor to run handlers on
+     * @param sync executor that runs tasks on the server thread
+     * @param logger logger to report handler exceptions to
+     */
+    public AsyncClickDispatcher(Executor async, Executor sync, Logger logger) {
+        this.async = Objects.requireNonNull(async, "async executor cannot be null");
+        this.sync = Objects.requireNonNull(sync, "sync executor cannot be null");
+        this.logger = Objects.requireNonNull(logger, "logger cannot be null");
+    }
+
+    /**
+     * Returns a click handler that runs an async handler through this dispatcher.
+     *
+     * @param handler async handler
+     * @return click handler to set on slots
+     */
+    public Slot.ClickHandler wrap(AsyncClickHandler handler) {
+        Objects.requireNonNull(handler, "handler cannot be null");
+        return new Slot.ClickHandler() {
+            @Override
+            public void click(Player player, ClickInformation click) {
+                dispatch(this, handler, player, click);
+            }
+        };
+    }
+
+    /**
+     * Returns whether a click by a player on a menu slot is still being handled.
+     *
+     * @param player player
+     * @param menu menu
+     * @param slot slot index
+     * @return true if the click has not been completed
+     */
+    public boolean isPending(Player player, Menu menu, int slot) {
+        return pending.contains(new PendingClick(player.getUniqueId(), menu, slot));
+    }
+
+    private void dispatch(Slot.ClickHandler wrapper, AsyncClickHandler handler, Player player, ClickInformation click) {
+        click.setResult(Event.Result.DENY);
+
+        PendingClick key = new PendingClick(player.getUniqueId(), click.getClickedMenu(),
+                click.getClickedSlot().getIndex());
+        if (!pending.add(key)) {
+            return;
+        }
+
+        CompletableFuture<Void> stage;
+        try {
+            stage = enqueue(key.viewer, () -> {
+                Runnable result;
+                try {
+                    result = handler.click(player, click);
+                } catch (RuntimeException | Error e) {
+                    pending.remove(key);
+                    CanvasMetrics.get().handlerFailed(key.menu, key.slot, wrapper, e);
+                    logger.log(Level.SEVERE, "Async click handler failed for " + player.getName(), e);
+                    return;
+                }
+
+                try {
+                    sync.execute(() -> {
+                        try {
+                            if (result != null && player.isOnline()) {
+                                result.run();
+                            }
+                        } catch (RuntimeException e) {
+                            logger.log(Level.SEVERE, "Async click result failed for " + player.getName(), e);
+                        } finally {
+                            pending.remove(key);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    pending.remove(key);
+                    logger.log(Level.SEVERE, "Could not schedule async click result for " + player.getName(), e);
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.remove(key);
+            throw e;
+        }
+
+        // The task catches its own failures, so the stage only fails if the task never ran
+        stage.whenComplete((v, e) -> {
+            if (e != null) {
+                pending.remove(key);
+                logger.log(Level.SEVERE, "Could not run async click handler for " + player.getName(), e);
+            }
+        });
+    }
+
+    // Chains a task after every task previously queued for the same viewer. A failed
+    // task does not stop the tasks queued after it from running.
+    private CompletableFuture<Void> enqueue(UUID viewer, Runnable task) {
+        CompletableFuture<Void> next = queues.compute(viewer, (id, tail) -> tail == null
+                ? CompletableFuture.runAsync(task, async)
+                : tail.handle((v, e) -> null).thenRunAsync(task, async));
+        next.whenComplete((v, e) -> queues.remove(viewer, next));
+        return next;
+    }
+
+    private static final class PendingClick {
+
+        private final UUID viewer;
+        private final Menu menu;
+        private final int slot;
+
+        PendingClick(UUID viewer, Menu menu, int slot) {
+            this.viewer = viewer;
+            this.menu = menu;
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof PendingClick)) {
+                return false;
+            }
+            PendingClick other = (PendingClick) o;
+            return slot == other.slot && menu == other.menu && viewer.equals(other.viewer);
+        }
+
+        @Override
+        public int hashCode() {
+            return (viewer.hashCode() * 31 + System.identityHashCode(menu)) * 31 + slot;
+        }
+    }
+}
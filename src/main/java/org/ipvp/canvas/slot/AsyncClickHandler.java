@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.slot;
+
+import org.bukkit.entity.Player;
+import org.ipvp.canvas.ClickInformation;
+
+/**
+ * A click handler that runs off the server thread, for handlers that need to
+ * perform blocking work such as database lookups.
+ * <p>
+ * Async handlers are turned into regular {@link Slot.ClickHandler}s with
+ * {@link AsyncClickDispatcher#wrap(AsyncClickHandler)}. The click is always
+ * denied before the handler runs, so the handler may not change the result of
+ * the click. Any changes to menus, slots or the player must be made in the
+ * returned task, which is run back on the server thread.
+ */
+@FunctionalInterface
+public interface AsyncClickHandler {
+
+    /**
+     * Called off the server thread when a Player clicks on a slot with this handler.
+     * <p>
+     * Only the click type, action, menu and slot of the passed information should
+     * be read, as the underlying inventory may not be accessed from this thread.
+     *
+     * @param player The player that clicked the slot
+     * @param click  Information about the performed click
+     * @return A task to run on the server thread, or null if there is nothing to apply
+     */
+    Runnable click(Player player, ClickInformation click);
+}
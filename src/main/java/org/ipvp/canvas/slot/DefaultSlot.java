@@ -28,8 +28,6 @@ import java.util.Optional;
 
 import java.util.function.Supplier;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.ipvp.canvas.template.ItemStackTemplate;
 import org.ipvp.canvas.template.StaticItemTemplate;
@@ -42,25 +40,26 @@ import org.ipvp.canvas.type.MenuHolder;
 public class DefaultSlot implements Slot {
 
     private final AbstractMenu handle;
+    private final SlotStore store;
     private final int index;
-    private ItemStackTemplate item;
-    private ClickOptions options;
-    private ClickHandler handler;
-    
-    public DefaultSlot(AbstractMenu handle, int index) {
-        this(handle, index, ClickOptions.DENY_ALL);
-    }
 
-    public DefaultSlot(AbstractMenu handle, int index, ClickOptions options) {
-        this(handle, index, options, null);
-    }
-
-    private DefaultSlot(AbstractMenu handle, int index, ClickOptions options, ClickHandler handler) {
+    /**
+     * Creates a view of the slot at an index of a menu. The state of the
+     * slot is read from and written to the menus {@link SlotStore}.
+     *
+     * @param handle parent menu
+     * @param index slot index
+     */
+    public DefaultSlot(AbstractMenu handle, int index) {
         Objects.requireNonNull(handle);
         this.handle = handle;
+        this.store = handle.getSlotStore();
         this.index = index;
+    }
+
+    public DefaultSlot(AbstractMenu handle, int index, ClickOptions options) {
+        this(handle, index);
         setClickOptions(options);
-        this.handler = handler;
     }
 
     @Override
@@ -70,26 +69,39 @@ public class DefaultSlot implements Slot {
 
     @Override
     public ClickOptions getClickOptions() {
-        return options;
+        return store.getClickOptions(index);
     }
 
     @Override
     public void setClickOptions(ClickOptions options) {
-        Objects.requireNonNull(options);
-        this.options = options;
+        if (handle.deferMutation(() -> setClickOptions(options))) {
+            return;
+        }
+        store.setClickOptions(index, options);
     }
 
     @Override
     public ItemStack getItem() {
+        ItemStackTemplate item = store.getTemplate(index);
         if (item instanceof StaticItemTemplate) {
             return ((StaticItemTemplate) item).getItem();
         }
         throw new UnsupportedOperationException("Cannot get item from template");
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Templates may return items that are shared between renders, so a copy of
+     * the rendered item is returned that the caller is free to modify. Menus
+     * render slot templates directly and do not pay for this copy.
+     */
     @Override
     public ItemStack getItem(Player viewer) {
-        return item == null ? null : item.getItem(viewer);
+        ItemStackTemplate template = store.getTemplate(index);
+        ItemStack item = template == null ? null : template.getItem(viewer);
+        // Templates may return shared items that must not be modified
+        return item == null ? null : new ItemStack(item);
     }
 
     @Override
@@ -104,51 +116,58 @@ public class DefaultSlot implements Slot {
 
     @Override
     public void setItemTemplate(ItemStackTemplate item) {
-        this.item = item;
-        handle.getHolders().forEach(v -> {
-            Inventory inventory = v.getInventory();
-            inventory.setItem(index, getItem(v.getViewer()));
-        });
+        if (handle.deferMutation(() -> setItemTemplate(item))) {
+            return;
+        }
+        store.setTemplate(index, item);
+        handle.refreshSlot(index);
     }
 
     @Override
     public ItemStack getRawItem(Player viewer) {
-        if (!handle.isOpen(viewer)) {
-            throw new IllegalStateException("Player not viewing parent menu");
-        }
-        MenuHolder menu = (MenuHolder) viewer.getOpenInventory().getTopInventory().getHolder();
-        return menu.getInventory().getItem(getIndex());
+        MenuHolder holder = handle.getHolder(viewer)
+                .orElseThrow(() -> new IllegalStateException("Player not viewing parent menu"));
+        return holder.getItem(getIndex());
     }
 
     @Override
     public void setRawItem(Player viewer, ItemStack item) {
-        Optional<MenuHolder> menu = handle.getHolders().stream()
-                .filter(v -> v.getViewer().equals(viewer)).findFirst();
-        if (!menu.isPresent()) {
-            throw new IllegalStateException("Player not viewing parent menu");
+        // A viewer that left the menu before the change was flushed has nothing left to update
+        if (handle.deferMutation(() -> handle.getHolder(viewer).ifPresent(holder -> setRawItem(viewer, item)))) {
+            return;
         }
-        menu.get().getInventory().setItem(getIndex(), item);
+        MenuHolder holder = handle.getHolder(viewer)
+                .orElseThrow(() -> new IllegalStateException("Player not viewing parent menu"));
+        handle.getViewerExecutor().execute(viewer, () -> handle.setRawItem(holder, index, item));
     }
 
     @Override
     public Optional<ClickHandler> getClickHandler() {
-        return Optional.ofNullable(handler);
+        return Optional.ofNullable(store.getClickHandler(index));
     }
 
     @Override
     public void setClickHandler(ClickHandler handler) {
-        this.handler = handler;
+        if (handle.deferMutation(() -> setClickHandler(handler))) {
+            return;
+        }
+        store.setClickHandler(index, handler);
     }
 
     @Override
     public SlotSettings getSettings() {
-        return new SlotSettings(options, handler, item);
+        return new SlotSettings(store.getClickOptions(index), store.getClickHandler(index), store.getTemplate(index),
+                store.getPrefetchTarget(index));
     }
 
     @Override
     public void setSettings(SlotSettings settings) {
+        if (handle.deferMutation(() -> setSettings(settings))) {
+            return;
+        }
         setItemTemplate(settings.getItemTemplate());
         setClickHandler(settings.getClickHandler());
+        store.setPrefetchTarget(index, settings.getPrefetchTarget());
         if (settings.getClickOptions() != null) {
             setClickOptions(settings.getClickOptions());
         }
@@ -72,7 +72,7 @@ public interface Slot {
 
     /**
      * Returns the item generated by the template for this slot, rendered
-     * for a specific player.
+     * for a specific player. The item is a copy and may be modified.
      *
      * @param viewer player viewing the menu/slot
      * @return item rendered for the player
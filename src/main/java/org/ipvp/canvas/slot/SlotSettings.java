@@ -26,6 +26,7 @@ package org.ipvp.canvas.slot;
 import java.util.function.Supplier;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.ipvp.canvas.Menu;
 import org.ipvp.canvas.template.ItemStackTemplate;
 import org.ipvp.canvas.template.StaticItemTemplate;
 
@@ -37,11 +38,18 @@ public class SlotSettings {
     private ClickOptions clickOptions;
     private Slot.ClickHandler clickHandler;
     private ItemStackTemplate itemTemplate;
+    private Menu prefetchTarget;
 
     SlotSettings(ClickOptions clickOptions, Slot.ClickHandler clickHandler, ItemStackTemplate itemTemplate) {
+        this(clickOptions, clickHandler, itemTemplate, null);
+    }
+
+    SlotSettings(ClickOptions clickOptions, Slot.ClickHandler clickHandler, ItemStackTemplate itemTemplate,
+                 Menu prefetchTarget) {
         this.clickOptions = clickOptions;
         this.clickHandler = clickHandler;
         this.itemTemplate = itemTemplate;
+        this.prefetchTarget = prefetchTarget;
     }
 
     /**
@@ -65,6 +73,17 @@ public class SlotSettings {
         return itemTemplate;
     }
 
+    /**
+     * Returns the menu the slot leads to, which is rendered ahead of time
+     * for viewers of the menu containing the slot.
+     *
+     * @return prefetch target, or null if none is set
+     * @see org.ipvp.canvas.type.Prerendering
+     */
+    public Menu getPrefetchTarget() {
+        return prefetchTarget;
+    }
+
     /**
      * Returns a new builder.
      *
@@ -82,6 +101,7 @@ public class SlotSettings {
         private ClickOptions clickOptions;
         private Slot.ClickHandler clickHandler;
         private ItemStackTemplate itemTemplate;
+        private Menu prefetchTarget;
 
         private Builder() {
 
@@ -125,13 +145,21 @@ public class SlotSettings {
             return this;
         }
 
+        /**
+         * @see SlotSettings#getPrefetchTarget()
+         */
+        public Builder prefetch(Menu target) {
+            this.prefetchTarget = target;
+            return this;
+        }
+
         /**
          * Builds a new slot details instance.
          *
          * @return slot details
          */
         public SlotSettings build() {
-            return new SlotSettings(clickOptions, clickHandler, itemTemplate);
+            return new SlotSettings(clickOptions, clickHandler, itemTemplate, prefetchTarget);
         }
     }
 }
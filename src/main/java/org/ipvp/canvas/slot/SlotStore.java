@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.slot;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.template.ItemStackTemplate;
+
+/**
+ * Backing storage for the slots of a menu.
+ *
+ * <p>Slot state is held in parallel arrays indexed by slot position rather
+ * than in one object per slot, which keeps untouched slots free and lets
+ * menus iterate their templates without dereferencing a slot object for
+ * every index. {@link DefaultSlot} instances are lightweight views into
+ * a store.
+ *
+ * <p>Stores created through {@link #copy()} share their arrays with the
+ * store they were copied from until either of them is modified, at which
+ * point the modified store takes a private copy of its arrays.
+ */
+public final class SlotStore {
+
+    private ItemStackTemplate[] templates;
+    private ClickOptions[] options;
+    private Slot.ClickHandler[] handlers;
+    private Menu[] prefetchTargets;
+    private boolean shared;
+    private volatile int modifications;
+    private volatile boolean signalBound;
+
+    public SlotStore(int size) {
+        this.templates = new ItemStackTemplate[size];
+        this.options = new ClickOptions[size];
+        this.handlers = new Slot.ClickHandler[size];
+        Arrays.fill(options, ClickOptions.DENY_ALL);
+    }
+
+    private SlotStore(SlotStore source) {
+        this.templates = source.templates;
+        this.options = source.options;
+        this.handlers = source.handlers;
+        this.prefetchTargets = source.prefetchTargets;
+        this.signalBound = source.signalBound;
+        this.shared = true;
+    }
+
+    /**
+     * Returns a copy of this store. The copy shares its contents with
+     * this store until one of the two is modified.
+     *
+     * @return copied store
+     */
+    public SlotStore copy() {
+        this.shared = true;
+        return new SlotStore(this);
+    }
+
+    /* Takes a private copy of the arrays if they are shared with another store */
+    private void ensureWritable() {
+        if (shared) {
+            this.templates = templates.clone();
+            this.options = options.clone();
+            this.handlers = handlers.clone();
+            this.prefetchTargets = prefetchTargets == null ? null : prefetchTargets.clone();
+            this.shared = false;
+        }
+    }
+
+    /**
+     * Returns the amount of slots held by the store.
+     *
+     * @return slot count
+     */
+    public int size() {
+        return templates.length;
+    }
+
+    /**
+     * Returns the item template of a slot.
+     *
+     * @param index slot index
+     * @return item template, or null if none is set
+     */
+    public ItemStackTemplate getTemplate(int index) {
+        return templates[index];
+    }
+
+    /**
+     * Sets the item template of a slot.
+     *
+     * @param index slot index
+     * @param template item template
+     */
+    public void setTemplate(int index, ItemStackTemplate template) {
+        ensureWritable();
+        templates[index] = template;
+        modifications++;
+    }
+
+    /**
+     * Returns a counter that changes every time an item template of the store
+     * is changed, which can be used to detect if rendered contents are outdated.
+     *
+     * @return modification count
+     */
+    public int getModificationCount() {
+        return modifications;
+    }
+
+    /**
+     * Returns whether a template of the store has read a
+     * {@link org.ipvp.canvas.template.Signal} while being rendered. Rendered
+     * contents of such stores may be outdated without the store being modified.
+     *
+     * @return true if any slot is bound to a signal
+     */
+    public boolean isSignalBound() {
+        return signalBound;
+    }
+
+    /**
+     * Marks that a template of the store has read a signal while being rendered.
+     */
+    public void markSignalBound() {
+        if (!signalBound) {
+            signalBound = true;
+        }
+    }
+
+    /**
+     * Returns the click options of a slot.
+     *
+     * @param index slot index
+     * @return click options
+     */
+    public ClickOptions getClickOptions(int index) {
+        return options[index];
+    }
+
+    /**
+     * Sets the click options of a slot.
+     *
+     * @param index slot index
+     * @param options click options
+     */
+    public void setClickOptions(int index, ClickOptions options) {
+        Objects.requireNonNull(options);
+        ensureWritable();
+        this.options[index] = options;
+    }
+
+    /**
+     * Returns the click handler of a slot.
+     *
+     * @param index slot index
+     * @return click handler, or null if none is set
+     */
+    public Slot.ClickHandler getClickHandler(int index) {
+        return handlers[index];
+    }
+
+    /**
+     * Sets the click handler of a slot.
+     *
+     * @param index slot index
+     * @param handler click handler
+     */
+    public void setClickHandler(int index, Slot.ClickHandler handler) {
+        ensureWritable();
+        handlers[index] = handler;
+    }
+
+    /**
+     * Returns the menu a slot leads to, which is rendered ahead of time for
+     * viewers of the menu containing the slot.
+     *
+     * @param index slot index
+     * @return prefetch target, or null if none is set
+     */
+    public Menu getPrefetchTarget(int index) {
+        return prefetchTargets == null ? null : prefetchTargets[index];
+    }
+
+    /**
+     * Sets the menu a slot leads to.
+     *
+     * @param index slot index
+     * @param target prefetch target
+     */
+    public void setPrefetchTarget(int index, Menu target) {
+        if (prefetchTargets == null && target == null) {
+            return;
+        }
+        ensureWritable();
+        if (prefetchTargets == null) {
+            prefetchTargets = new Menu[templates.length];
+        }
+        prefetchTargets[index] = target;
+    }
+
+    /**
+     * Returns whether any slot of the store has a prefetch target.
+     *
+     * @return true if a prefetch target may be set
+     */
+    public boolean hasPrefetchTargets() {
+        return prefetchTargets != null;
+    }
+
+    /**
+     * Reverts every slot to having no item template, click handler or
+     * prefetch target and {@link ClickOptions#DENY_ALL} options.
+     */
+    public void clear() {
+        if (shared) {
+            this.templates = new ItemStackTemplate[templates.length];
+            this.options = new ClickOptions[options.length];
+            this.handlers = new Slot.ClickHandler[handlers.length];
+            this.shared = false;
+        } else {
+            Arrays.fill(templates, null);
+            Arrays.fill(handlers, null);
+        }
+        this.prefetchTargets = null;
+        this.signalBound = false;
+        Arrays.fill(options, ClickOptions.DENY_ALL);
+        modifications++;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * A template that builds its item from a precompiled base item.
+ * <p>
+ * The name and lore of the item may contain placeholders such as {@code {level}}
+ * that are resolved for each viewer, either by placeholders added to the builder
+ * or by those registered with {@link Placeholders}. Strings are parsed into
+ * {@link PlaceholderString}s once when the template is built, and static parts of
+ * the item are applied to a base meta ahead of time. Rendering for a viewer writes
+ * the resolved name and lore into a per-thread copy of the base meta, so the only
+ * copy of the meta made per render is the one taken when it is set on the item.
+ */
+public class CompiledItemTemplate implements ItemStackTemplate {
+
+    private final ItemStack base;
+    private final ThreadLocal<ItemMeta> scratch;
+    private final Map<String, PlaceholderResolver> placeholders;
+    private final PlaceholderString name;
+    private final PlaceholderString[] lore;
+
+    private CompiledItemTemplate(Builder builder) {
+        ItemStack item = builder.item;
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) {
+            throw new IllegalArgumentException(item.getType() + " cannot have a name or lore");
+        }
+
+        PlaceholderString name = builder.name == null ? null : PlaceholderString.parse(builder.name);
+        PlaceholderString[] lore = null;
+        if (builder.lore != null) {
+            lore = new PlaceholderString[builder.lore.size()];
+            for (int i = 0 ; i < lore.length ; i++) {
+                lore[i] = PlaceholderString.parse(builder.lore.get(i));
+            }
+        }
+
+        // Static strings are applied to the base meta so they are never touched when rendering
+        if (name != null && name.isStatic()) {
+            meta.setDisplayName(name.toString());
+            name = null;
+        }
+        if (lore != null && Arrays.stream(lore).allMatch(PlaceholderString::isStatic)) {
+            List<String> lines = new ArrayList<>(lore.length);
+            for (PlaceholderString line : lore) {
+                lines.add(line.toString());
+            }
+            meta.setLore(lines);
+            lore = null;
+        }
+
+        this.base = new ItemStack(item.getType(), item.getAmount(), item.getDurability());
+        // Only the dynamic name and lore are ever written to a scratch meta
+        this.scratch = ThreadLocal.withInitial(meta::clone);
+        this.placeholders = new HashMap<>(builder.placeholders);
+        this.name = name;
+        this.lore = lore;
+    }
+
+    @Override
+    public ItemStack getItem(Player player) {
+        String displayName = null;
+        List<String> lines = null;
+        // Placeholders used several times by the item are resolved once
+        RenderContext.beginPass();
+        try {
+            if (name != null) {
+                displayName = name.resolve(player, placeholders);
+            }
+            if (lore != null) {
+                lines = new ArrayList<>(lore.length);
+                for (PlaceholderString line : lore) {
+                    lines.add(line.resolve(player, placeholders));
+                }
+            }
+        } finally {
+            RenderContext.endPass();
+        }
+
+        // Values are resolved before the scratch meta is touched in case a resolver
+        // renders this template again on the same thread
+        ItemMeta meta = scratch.get();
+        if (name != null) {
+            meta.setDisplayName(displayName);
+        }
+        if (lore != null) {
+            meta.setLore(lines);
+        }
+
+        // Setting the meta copies it, so the scratch meta is never shared with the item
+        ItemStack item = new ItemStack(base);
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    @Override
+    public boolean isViewerSpecific() {
+        return name != null || lore != null;
+    }
+
+    /**
+     * Returns a new builder.
+     *
+     * @param item base item, copied by the builder
+     * @return builder instance
+     */
+    public static Builder builder(ItemStack item) {
+        return new Builder(item);
+    }
+
+    /**
+     * A builder for creating a CompiledItemTemplate instance.
+     */
+    public static class Builder {
+
+        private final ItemStack item;
+        private final Map<String, PlaceholderResolver> placeholders = new HashMap<>();
+        private String name;
+        private List<String> lore;
+
+        private Builder(ItemStack item) {
+            this.item = new ItemStack(Objects.requireNonNull(item, "item cannot be null"));
+        }
+
+        /**
+         * Sets the display name of the item, which may contain placeholders.
+         *
+         * @param name display name
+         * @return Fluent pattern
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Sets the lore of the item, where each line may contain placeholders.
+         *
+         * @param lore lore lines
+         * @return Fluent pattern
+         */
+        public Builder lore(String... lore) {
+            return lore(Arrays.asList(lore));
+        }
+
+        /**
+         * Sets the lore of the item, where each line may contain placeholders.
+         *
+         * @param lore lore lines
+         * @return Fluent pattern
+         */
+        public Builder lore(List<String> lore) {
+            this.lore = lore == null ? null : new ArrayList<>(lore);
+            return this;
+        }
+
+        /**
+         * Adds a placeholder that can be used in the name and lore as {@code {key}},
+         * taking precedence over a registered placeholder with the same key.
+         *
+         * @param key placeholder key
+         * @param resolver resolves the value of the placeholder for a viewer
+         * @return Fluent pattern
+         */
+        public Builder placeholder(String key, PlaceholderResolver resolver) {
+            placeholders.put(Objects.requireNonNull(key, "key cannot be null"),
+                    Objects.requireNonNull(resolver, "resolver cannot be null"));
+            return this;
+        }
+
+        /**
+         * Compiles the template from the provided data.
+         *
+         * @return compiled item template
+         * @throws IllegalArgumentException if the item cannot have meta
+         */
+        public CompiledItemTemplate build() {
+            return new CompiledItemTemplate(this);
+        }
+    }
+}
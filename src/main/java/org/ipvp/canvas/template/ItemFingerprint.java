@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * 64-bit fingerprints of item contents.
+ * <p>
+ * A fingerprint covers the type, durability, amount and meta of an item. Items
+ * with different fingerprints are never equal, so comparing fingerprints first
+ * avoids comparing item meta for items that differ. Items with equal fingerprints
+ * must still be compared in full, as fingerprints may collide.
+ * <p>
+ * Computing the fingerprint of an item with meta copies the meta, so templates
+ * that hand out the same item instance on every render, such as
+ * {@link StaticItemTemplate}, compute it once and return it from
+ * {@link ItemStackTemplate#getFingerprint(ItemStack)}.
+ */
+public final class ItemFingerprint {
+
+    /**
+     * Fingerprint of empty items, either null or air.
+     */
+    public static final long EMPTY = 0L;
+
+    private static final long OFFSET = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private ItemFingerprint() {
+
+    }
+
+    /**
+     * Computes the fingerprint of an item.
+     *
+     * @param item item
+     * @return fingerprint, {@link #EMPTY} for empty items
+     */
+    public static long of(ItemStack item) {
+        if (item == null || item.getType() == Material.AIR) {
+            return EMPTY;
+        }
+
+        long hash = mix(OFFSET, item.getType().ordinal());
+        hash = mix(hash, item.getDurability());
+        hash = mix(hash, item.getAmount());
+        if (item.hasItemMeta()) {
+            // Copies the meta once. Its hash covers the name, lore, enchantments and
+            // data specific to the meta type, such as colors or skull owners
+            hash = mix(hash, item.getItemMeta().hashCode());
+        }
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    /**
+     * Returns whether two items are equal, comparing their fingerprints first.
+     *
+     * @param item first item
+     * @param fingerprint fingerprint of the first item
+     * @param other second item
+     * @param otherFingerprint fingerprint of the second item
+     * @return true if the items are equal
+     */
+    public static boolean equals(ItemStack item, long fingerprint, ItemStack other, long otherFingerprint) {
+        if (fingerprint != otherFingerprint) {
+            return false;
+        }
+        return item == other || fingerprint == EMPTY || item.equals(other);
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * PRIME;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Cache of canonical item stacks for rendered template output.
+ * <p>
+ * Templates that produce one of a small set of distinct items can return a
+ * canonical stack instead of allocating a new one on every render, either by
+ * a cheap key with {@link #intern(Object, Supplier)} or by their contents with
+ * {@link #intern(ItemStack)}. Menus compare items they already wrote to a
+ * window by identity, so rendering the same canonical stack again is detected
+ * as unchanged without comparing item meta.
+ * <p>
+ * Canonical stacks are shared by every menu and player and must never be
+ * modified. Once the cache grows past {@link #setMaximumSize(int)} entries it
+ * is cleared, after which new canonical stacks are created on demand.
+ */
+public final class ItemInterner {
+
+    private static final ConcurrentMap<Object, ItemStack> ITEMS = new ConcurrentHashMap<>();
+    private static volatile int maximumSize = 4096;
+
+    private ItemInterner() {
+
+    }
+
+    /**
+     * Returns the canonical stack for a key, creating it on first use.
+     * Keys must implement equals and hashCode, and should be unique to the
+     * template using them.
+     *
+     * @param key cheap key identifying the item
+     * @param factory creates the item if the key is not cached
+     * @return canonical item
+     */
+    public static ItemStack intern(Object key, Supplier<ItemStack> factory) {
+        Objects.requireNonNull(key, "key cannot be null");
+        ItemStack item = ITEMS.get(key);
+        if (item == null) {
+            item = factory.get();
+            if (item == null) {
+                return null;
+            }
+            ItemStack existing = cache(key, item);
+            if (existing != null) {
+                item = existing;
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Returns the canonical stack equal to an item. If no equal item is cached,
+     * the item itself becomes canonical and must not be modified afterwards.
+     *
+     * @param item item to intern
+     * @return canonical item
+     */
+    public static ItemStack intern(ItemStack item) {
+        if (item == null) {
+            return null;
+        }
+        ItemStack existing = cache(item, item);
+        return existing == null ? item : existing;
+    }
+
+    private static ItemStack cache(Object key, ItemStack item) {
+        if (ITEMS.size() >= maximumSize) {
+            ITEMS.clear();
+        }
+        return ITEMS.putIfAbsent(key, item);
+    }
+
+    /**
+     * Sets the amount of canonical stacks cached before the cache is cleared.
+     *
+     * @param maximumSize maximum cache size
+     */
+    public static void setMaximumSize(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximum size must be positive");
+        }
+        ItemInterner.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the amount of canonical stacks cached.
+     *
+     * @return cache size
+     */
+    public static int size() {
+        return ITEMS.size();
+    }
+
+    /**
+     * Discards every canonical stack.
+     */
+    public static void clear() {
+        ITEMS.clear();
+    }
+}
@@ -34,9 +34,36 @@ public interface ItemStackTemplate {
 
     /**
      * Gets the item for a player.
+     * <p>
+     * The returned item may be shared between renders, menus and players,
+     * as it is by {@link StaticItemTemplate} and {@link ItemInterner}, and
+     * must not be modified.
      *
      * @param player player
      * @return current item the player can see
      */
     ItemStack getItem(Player player);
+
+    /**
+     * Returns the {@link ItemFingerprint fingerprint} of an item rendered by this
+     * template. Templates that return the same item instance on every render can
+     * compute its fingerprint once and return it here.
+     *
+     * @param item item returned by {@link #getItem(Player)}
+     * @return fingerprint of the item
+     */
+    default long getFingerprint(ItemStack item) {
+        return ItemFingerprint.of(item);
+    }
+
+    /**
+     * Returns whether the item may differ between players. Menus sharing a
+     * single inventory between viewers render templates that are not viewer
+     * specific once for everyone.
+     *
+     * @return true if the item depends on the player
+     */
+    default boolean isViewerSpecific() {
+        return true;
+    }
 }
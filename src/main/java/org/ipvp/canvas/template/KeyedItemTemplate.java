@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * A template that selects one of a small set of items by a cheap per-player
+ * key, such as a locked or unlocked icon. Each distinct item is created once
+ * and {@link ItemInterner interned}, so rendering allocates no items and windows
+ * that already display the item are left untouched.
+ * <p>
+ * Items are shared between every slot and player using the template and must
+ * not be modified by the factory after being returned.
+ *
+ * @param <K> key type
+ */
+public class KeyedItemTemplate<K> implements ItemStackTemplate {
+
+    private final Function<Player, K> key;
+    private final Function<K, ItemStack> factory;
+
+    public KeyedItemTemplate(Function<Player, K> key, Function<K, ItemStack> factory) {
+        this.key = Objects.requireNonNull(key, "key cannot be null");
+        this.factory = Objects.requireNonNull(factory, "factory cannot be null");
+    }
+
+    /**
+     * Creates a template that selects items by a key.
+     *
+     * @param key computes the key of the item for a player
+     * @param factory creates the item for a key
+     * @param <K> key type
+     * @return keyed template
+     */
+    public static <K> KeyedItemTemplate<K> of(Function<Player, K> key, Function<K, ItemStack> factory) {
+        return new KeyedItemTemplate<>(key, factory);
+    }
+
+    @Override
+    public ItemStack getItem(Player player) {
+        K value = key.apply(player);
+        return ItemInterner.intern(new Key(this, value), () -> factory.apply(value));
+    }
+
+    /* Scopes keys to their template so equal keys of different templates do not collide */
+    private static final class Key {
+
+        private final KeyedItemTemplate<?> template;
+        private final Object value;
+
+        Key(KeyedItemTemplate<?> template, Object value) {
+            this.template = template;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return template == key.template && Objects.equals(value, key.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(template) + Objects.hashCode(value);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Resolves the value of a placeholder for a player.
+ * <p>
+ * While a menu is rendered, each resolver is called at most once per viewer
+ * and the value is reused by every slot containing the placeholder. Resolvers
+ * should therefore not read {@link Signal}s, as only the first slot resolving
+ * the placeholder would be recorded as depending on them.
+ */
+@FunctionalInterface
+public interface PlaceholderResolver {
+
+    /**
+     * Resolves the value of the placeholder.
+     *
+     * @param viewer player the value is resolved for
+     * @return placeholder value
+     */
+    String resolve(Player viewer);
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.entity.Player;
+
+/**
+ * A string containing placeholders such as {@code {balance}}, parsed once into
+ * literal and placeholder tokens.
+ * <p>
+ * Placeholders are resolved through local resolvers first and then through the
+ * resolvers registered with {@link Placeholders}. Placeholders without a resolver
+ * are left as they are. While a menu is rendered, each resolver is called once per
+ * viewer, so a placeholder used in many slots is resolved once per render.
+ */
+public final class PlaceholderString {
+
+    private final String[] parts;
+    private final String[] keys;
+
+    private PlaceholderString(String[] parts, String[] keys) {
+        this.parts = parts;
+        this.keys = keys;
+    }
+
+    /**
+     * Parses a string containing placeholders.
+     *
+     * @param text text to parse
+     * @return parsed string
+     */
+    public static PlaceholderString parse(String text) {
+        List<String> parts = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = text.indexOf('{', start)) != -1) {
+            int close = text.indexOf('}', open);
+            if (close == -1) {
+                break;
+            }
+            parts.add(text.substring(start, open));
+            keys.add(text.substring(open + 1, close));
+            start = close + 1;
+        }
+        parts.add(text.substring(start));
+        return new PlaceholderString(parts.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    /**
+     * Returns whether the string contains no placeholders.
+     *
+     * @return true if the string is static
+     */
+    public boolean isStatic() {
+        return keys.length == 0;
+    }
+
+    /**
+     * Returns the keys of the placeholders in the string, in order.
+     *
+     * @return placeholder keys
+     */
+    public List<String> getPlaceholders() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /**
+     * Resolves the string for a player with the registered placeholders.
+     *
+     * @param viewer player to resolve for
+     * @return resolved string
+     */
+    public String resolve(Player viewer) {
+        return resolve(viewer, Collections.emptyMap());
+    }
+
+    /**
+     * Resolves the string for a player, preferring local placeholders over
+     * the registered placeholders.
+     *
+     * @param viewer player to resolve for
+     * @param resolvers local placeholders by key
+     * @return resolved string
+     */
+    public String resolve(Player viewer, Map<String, PlaceholderResolver> resolvers) {
+        if (keys.length == 0) {
+            return parts[0];
+        }
+        StringBuilder builder = new StringBuilder(parts[0]);
+        for (int i = 0 ; i < keys.length ; i++) {
+            PlaceholderResolver resolver = resolvers.get(keys[i]);
+            if (resolver == null) {
+                resolver = Placeholders.get(keys[i]);
+            }
+            if (resolver == null) {
+                builder.append('{').append(keys[i]).append('}');
+            } else {
+                builder.append(RenderContext.resolve(resolver, viewer));
+            }
+            builder.append(parts[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(parts[0]);
+        for (int i = 0 ; i < keys.length ; i++) {
+            builder.append('{').append(keys[i]).append('}').append(parts[i + 1]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of placeholders available to every {@link PlaceholderString}.
+ * <p>
+ * Placeholders are looked up when a string is resolved, so they can be
+ * registered before or after the strings using them are parsed.
+ */
+public final class Placeholders {
+
+    private static final Map<String, PlaceholderResolver> RESOLVERS = new ConcurrentHashMap<>();
+
+    private Placeholders() {
+
+    }
+
+    /**
+     * Registers a placeholder, replacing any placeholder with the same key.
+     *
+     * @param key placeholder key, used as {@code {key}}
+     * @param resolver resolver of the placeholder
+     */
+    public static void register(String key, PlaceholderResolver resolver) {
+        RESOLVERS.put(Objects.requireNonNull(key, "key cannot be null"),
+                Objects.requireNonNull(resolver, "resolver cannot be null"));
+    }
+
+    /**
+     * Removes a placeholder.
+     *
+     * @param key placeholder key
+     */
+    public static void unregister(String key) {
+        RESOLVERS.remove(key);
+    }
+
+    /**
+     * Returns the resolver of a placeholder.
+     *
+     * @param key placeholder key
+     * @return resolver, or null if the placeholder is not registered
+     */
+    public static PlaceholderResolver get(String key) {
+        return RESOLVERS.get(key);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import org.bukkit.entity.Player;
+import org.ipvp.canvas.type.AbstractMenu;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Describes the slot a template is currently being rendered for.
+ * <p>
+ * Menus enter a context for the duration of every template evaluation, which
+ * allows values read by templates, such as {@link Signal}s, to find out which
+ * slot and viewer depend on them. Contexts are tracked per thread.
+ * <p>
+ * Renders of many slots can be grouped into a pass with {@link #beginPass()}.
+ * Placeholder values resolved during a pass are cached per viewer until the
+ * outermost pass ends, or until the outermost slot render ends when no pass
+ * is active.
+ */
+public final class RenderContext {
+
+    private static final ThreadLocal<RenderContext> CONTEXT = ThreadLocal.withInitial(RenderContext::new);
+
+    private AbstractMenu[] menus = new AbstractMenu[4];
+    private int[] slots = new int[4];
+    private Player[] viewers = new Player[4];
+    private int depth;
+    private int passes;
+    private Player cacheViewer;
+    private final Map<PlaceholderResolver, String> cache = new IdentityHashMap<>();
+
+    private RenderContext() {
+
+    }
+
+    /**
+     * Enters the context of rendering a slot for a viewer on the current thread.
+     * Every call must be followed by a call to {@link #exit()}, typically in a
+     * finally block.
+     *
+     * @param menu menu being rendered
+     * @param slot slot index being rendered
+     * @param viewer player the slot is rendered for
+     * @return context of the current thread
+     */
+    public static RenderContext enter(AbstractMenu menu, int slot, Player viewer) {
+        RenderContext context = CONTEXT.get();
+        if (context.depth == context.slots.length) {
+            int length = context.depth * 2;
+            context.menus = Arrays.copyOf(context.menus, length);
+            context.slots = Arrays.copyOf(context.slots, length);
+            context.viewers = Arrays.copyOf(context.viewers, length);
+        }
+        context.menus[context.depth] = menu;
+        context.slots[context.depth] = slot;
+        context.viewers[context.depth] = viewer;
+        context.depth++;
+        return context;
+    }
+
+    /**
+     * Leaves the most recently entered render context.
+     */
+    public void exit() {
+        if (depth == 0) {
+            throw new IllegalStateException("No render context entered");
+        }
+        depth--;
+        menus[depth] = null;
+        viewers[depth] = null;
+        if (depth == 0 && passes == 0) {
+            clearCache();
+        }
+    }
+
+    /**
+     * Begins a render pass on the current thread. Every call must be followed
+     * by a call to {@link #endPass()}, typically in a finally block.
+     */
+    public static void beginPass() {
+        CONTEXT.get().passes++;
+    }
+
+    /**
+     * Ends the most recently begun render pass on the current thread.
+     */
+    public static void endPass() {
+        RenderContext context = CONTEXT.get();
+        if (context.passes == 0) {
+            throw new IllegalStateException("No render pass begun");
+        }
+        context.passes--;
+        if (context.passes == 0 && context.depth == 0) {
+            context.clearCache();
+        }
+    }
+
+    /* Resolves a placeholder, reusing its value for the same viewer until the render ends */
+    static String resolve(PlaceholderResolver resolver, Player viewer) {
+        RenderContext context = CONTEXT.get();
+        if (context.depth == 0 && context.passes == 0) {
+            return String.valueOf(resolver.resolve(viewer));
+        }
+        if (context.cacheViewer != viewer) {
+            context.cache.clear();
+            context.cacheViewer = viewer;
+        }
+        String value = context.cache.get(resolver);
+        if (value == null) {
+            value = String.valueOf(resolver.resolve(viewer));
+            context.cache.put(resolver, value);
+        }
+        return value;
+    }
+
+    private void clearCache() {
+        if (cacheViewer != null || !cache.isEmpty()) {
+            cache.clear();
+            cacheViewer = null;
+        }
+    }
+
+    /**
+     * Returns the context of the template being rendered on the current thread.
+     *
+     * @return render context, if a template is being rendered
+     */
+    public static Optional<RenderContext> current() {
+        return Optional.ofNullable(active());
+    }
+
+    /* Returns the context of the current thread if a template is being rendered, otherwise null */
+    static RenderContext active() {
+        RenderContext context = CONTEXT.get();
+        return context.depth == 0 ? null : context;
+    }
+
+    /**
+     * Gets the menu being rendered.
+     *
+     * @return menu
+     */
+    public AbstractMenu getMenu() {
+        return menus[depth - 1];
+    }
+
+    /**
+     * Gets the index of the slot being rendered.
+     *
+     * @return slot index
+     */
+    public int getSlot() {
+        return slots[depth - 1];
+    }
+
+    /**
+     * Gets the player the slot is being rendered for.
+     *
+     * @return viewer
+     */
+    public Player getViewer() {
+        return viewers[depth - 1];
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.ipvp.canvas.type.AbstractMenu;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * An observable value that templates can depend on.
+ * <p>
+ * When a template reads a signal with {@link #get()} while a menu is rendering
+ * it, the signal remembers the slot and viewer it was rendered for. Changing the
+ * value of the signal then re-renders only those slots, for only those viewers,
+ * instead of the entire menu.
+ * <pre>
+ * Signal&lt;Integer&gt; score = Signal.of(0);
+ * slot.setItemTemplate(p -&gt; createScoreItem(score.get()));
+ * score.set(10); // Re-renders the slot for everyone viewing it
+ * </pre>
+ * Dependencies are recorded again every time a slot is rendered and are dropped
+ * once the signal changes, so slots that stop reading a signal are no longer
+ * updated by it. Signals should be changed on the server thread, unless the
+ * dependent menus are in {@link AbstractMenu#setConcurrent(boolean) concurrent mode}.
+ *
+ * @param <T> value type
+ */
+public final class Signal<T> {
+
+    private volatile T value;
+    private final Map<AbstractMenu, Set<Dependent>> dependents = new WeakHashMap<>();
+
+    private Signal(T value) {
+        this.value = value;
+    }
+
+    /**
+     * Creates a new signal.
+     *
+     * @param value initial value
+     * @param <T> value type
+     * @return signal
+     */
+    public static <T> Signal<T> of(T value) {
+        return new Signal<>(value);
+    }
+
+    /**
+     * Gets the current value, recording the slot being rendered as a dependent
+     * if called from a template.
+     *
+     * @return current value
+     */
+    public T get() {
+        RenderContext context = RenderContext.active();
+        if (context != null) {
+            context.getMenu().getSlotStore().markSignalBound();
+            Dependent dependent = new Dependent(context.getViewer().getUniqueId(), context.getSlot());
+            synchronized (dependents) {
+                dependents.computeIfAbsent(context.getMenu(), m -> new HashSet<>()).add(dependent);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Gets the current value without recording a dependency.
+     *
+     * @return current value
+     */
+    public T peek() {
+        return value;
+    }
+
+    /**
+     * Changes the value, re-rendering all dependent slots if the value is
+     * not equal to the previous value.
+     *
+     * @param value new value
+     */
+    public void set(T value) {
+        synchronized (this) {
+            if (Objects.equals(this.value, value)) {
+                return;
+            }
+            this.value = value;
+        }
+        notifyDependents();
+    }
+
+    /**
+     * Changes the value based on the current value.
+     *
+     * @param function function computing the new value
+     * @see #set(Object)
+     */
+    public void update(UnaryOperator<T> function) {
+        T updated;
+        synchronized (this) {
+            T previous = value;
+            updated = function.apply(previous);
+            if (Objects.equals(previous, updated)) {
+                return;
+            }
+            value = updated;
+        }
+        notifyDependents();
+    }
+
+    /**
+     * Returns the amount of slots that currently depend on this signal,
+     * counting each viewer separately.
+     *
+     * @return dependent count
+     */
+    public int getDependentCount() {
+        synchronized (dependents) {
+            return dependents.values().stream().mapToInt(Set::size).sum();
+        }
+    }
+
+    private void notifyDependents() {
+        Map<AbstractMenu, Set<Dependent>> notified;
+        synchronized (dependents) {
+            if (dependents.isEmpty()) {
+                return;
+            }
+            notified = new HashMap<>(dependents);
+            dependents.clear();
+        }
+
+        notified.forEach((menu, slots) -> {
+            for (Dependent dependent : slots) {
+                Player viewer = Bukkit.getPlayer(dependent.viewer);
+                if (viewer != null) {
+                    menu.updateSlot(viewer, dependent.slot);
+                }
+            }
+        });
+    }
+
+    /* A slot rendered for a viewer. Viewers are held by id so they do not keep menus reachable */
+    private static final class Dependent {
+
+        private final UUID viewer;
+        private final int slot;
+
+        Dependent(UUID viewer, int slot) {
+            this.viewer = viewer;
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof Dependent)) {
+                return false;
+            }
+            Dependent other = (Dependent) o;
+            return slot == other.slot && viewer.equals(other.viewer);
+        }
+
+        @Override
+        public int hashCode() {
+            return viewer.hashCode() * 31 + slot;
+        }
+    }
+}
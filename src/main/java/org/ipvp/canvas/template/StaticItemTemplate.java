@@ -26,21 +26,26 @@ package org.ipvp.canvas.template;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.Objects;
-
 /**
  * An itemstack template that will always return the same item.
+ * <p>
+ * Menus are handed the same item instance on every render, so it is recognized
+ * as unchanged by identity and its fingerprint is computed once. The item is
+ * copied when the template is created and is never modified afterwards.
  */
 public class StaticItemTemplate implements ItemStackTemplate {
 
     private final ItemStack item;
+    private final long fingerprint;
 
     public StaticItemTemplate(ItemStack item) {
-        this.item = item;
+        this.item = item == null ? null : new ItemStack(item);
+        // The item never changes, so its fingerprint is computed once
+        this.fingerprint = ItemFingerprint.of(this.item);
     }
 
     /**
-     * Gets the item contained by this static template.
+     * Gets a copy of the item contained by this static template.
      *
      * @return item
      */
@@ -50,7 +55,17 @@ public class StaticItemTemplate implements ItemStackTemplate {
 
     @Override
     public ItemStack getItem(Player player) {
-        return getItem();
+        return item;
+    }
+
+    @Override
+    public long getFingerprint(ItemStack item) {
+        return item == this.item ? fingerprint : ItemFingerprint.of(item);
+    }
+
+    @Override
+    public boolean isViewerSpecific() {
+        return false;
     }
 
     @Override
@@ -58,11 +73,11 @@ public class StaticItemTemplate implements ItemStackTemplate {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         StaticItemTemplate that = (StaticItemTemplate) o;
-        return Objects.equals(item, that.item);
+        return ItemFingerprint.equals(item, fingerprint, that.item, that.fingerprint);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(item);
+        return (int) (fingerprint ^ (fingerprint >>> 32));
     }
 }
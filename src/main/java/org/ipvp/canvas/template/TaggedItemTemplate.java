@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.template;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An itemstack template labelled with the data it depends on.
+ * <p>
+ * Tags allow all slots rendering some data to be re-rendered at once when
+ * the data changes, see {@link org.ipvp.canvas.type.MenuRegistry#updateTagged(String)}.
+ */
+public class TaggedItemTemplate implements ItemStackTemplate {
+
+    private final ItemStackTemplate template;
+    private final Set<String> tags;
+
+    public TaggedItemTemplate(ItemStackTemplate template, Set<String> tags) {
+        this.template = Objects.requireNonNull(template, "template cannot be null");
+        this.tags = Collections.unmodifiableSet(new HashSet<>(tags));
+    }
+
+    /**
+     * Labels a template with tags.
+     *
+     * @param template template to label
+     * @param tags tags of the template
+     * @return tagged template
+     */
+    public static TaggedItemTemplate of(ItemStackTemplate template, String... tags) {
+        return new TaggedItemTemplate(template, new HashSet<>(Arrays.asList(tags)));
+    }
+
+    /**
+     * Gets the template that renders items.
+     *
+     * @return underlying template
+     */
+    public ItemStackTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Gets the tags of this template.
+     *
+     * @return tags
+     */
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Returns whether this template is labelled with a tag.
+     *
+     * @param tag tag
+     * @return true if the template has the tag
+     */
+    public boolean hasTag(String tag) {
+        return tags.contains(tag);
+    }
+
+    @Override
+    public ItemStack getItem(Player player) {
+        return template.getItem(player);
+    }
+
+    @Override
+    public long getFingerprint(ItemStack item) {
+        return template.getFingerprint(item);
+    }
+
+    @Override
+    public boolean isViewerSpecific() {
+        return template.isViewerSpecific();
+    }
+}
@@ -24,9 +24,14 @@
 package org.ipvp.canvas.type;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.Inventory;
@@ -35,8 +40,17 @@ import org.bukkit.inventory.ItemStack;
 import org.ipvp.canvas.ArrayIterator;
 import org.ipvp.canvas.Menu;
 import org.ipvp.canvas.mask.Mask;
+import org.ipvp.canvas.metrics.CanvasMetrics;
+import org.ipvp.canvas.metrics.MenuMetrics;
+import org.ipvp.canvas.slot.ClickOptions;
 import org.ipvp.canvas.slot.DefaultSlot;
 import org.ipvp.canvas.slot.Slot;
+import org.ipvp.canvas.slot.SlotStore;
+import org.ipvp.canvas.template.ItemFingerprint;
+import org.ipvp.canvas.template.ItemStackTemplate;
+import org.ipvp.canvas.template.RenderContext;
+import org.ipvp.canvas.template.StaticItemTemplate;
+import org.ipvp.canvas.template.TaggedItemTemplate;
 
 /**
  * An abstract class that provides a skeletal implementation of the Menu 
@@ -44,12 +58,27 @@ import org.ipvp.canvas.slot.Slot;
  */
 public abstract class AbstractMenu implements Menu  {
 
+    private static volatile TitleAdapter titleAdapter = TitleAdapter.NONE;
+
     private Menu parent;
     private boolean redraw;
+    private SlotStore store;
     private DefaultSlot[] slots;
     private CloseHandler handler;
     private CursorDropHandler cursorDropHandler;
-    private final Set<MenuHolder> holders = new HashSet<>();
+    private final Map<UUID, MenuHolder> holders = new ConcurrentHashMap<>();
+    private final Set<MenuHolder> holderView = new HolderSet();
+    private final Queue<Runnable> pendingMutations = new ConcurrentLinkedQueue<>();
+    private volatile boolean concurrent;
+    private boolean flushing;
+    private ViewerExecutor viewerExecutor = ViewerExecutor.DIRECT;
+    private RenderBackend renderBackend = RenderBackend.BUKKIT;
+    private boolean sharedInventory;
+    private Inventory shared;
+    private int sharingViewers;
+    private volatile String metricsName;
+    MenuPool pool;
+    volatile Map<UUID, Prerendering.Result> prerenders;
 
     // Bukkit Inventory information
     protected String inventoryTitle;
@@ -80,13 +109,261 @@ public abstract class AbstractMenu implements Menu  {
     }
 
     /**
-     * Initial method called to fill the Slots of the menu
+     * Creates a menu that is a copy of another menu. The slots of the copy
+     * share their state with the prototype until either menu is modified.
+     * Viewers of the prototype are not carried over.
+     *
+     * @param prototype menu to copy
+     */
+    protected AbstractMenu(AbstractMenu prototype) {
+        this.inventoryTitle = prototype.inventoryTitle;
+        this.inventorySlots = prototype.inventorySlots;
+        this.inventoryType = prototype.inventoryType;
+        this.parent = prototype.parent;
+        this.redraw = prototype.redraw;
+        this.store = prototype.store.copy();
+        this.handler = prototype.handler;
+        this.cursorDropHandler = prototype.cursorDropHandler;
+        this.concurrent = prototype.concurrent;
+        this.viewerExecutor = prototype.viewerExecutor;
+        this.renderBackend = prototype.renderBackend;
+        this.sharedInventory = prototype.sharedInventory;
+        this.metricsName = prototype.metricsName;
+    }
+
+    /**
+     * Returns a copy of this menu as described by {@link #AbstractMenu(AbstractMenu)}.
+     *
+     * <p>Menu types that support {@link MenuPrototype}s must override this method.
+     *
+     * @return menu copy
+     * @throws UnsupportedOperationException if the menu type cannot be copied
+     */
+    protected AbstractMenu copy() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot be copied");
+    }
+
+    /**
+     * Initial method called to create the storage for the Slots of the menu.
+     *
+     * <p>Slot objects are only created once they are requested through
+     * {@link #getSlot(int)} or any other method that exposes them.
      */
     protected void generateSlots() {
-        this.slots = new DefaultSlot[getDimensions().getArea()];
-        for (int i = 0 ; i < slots.length ; i++) {
-            this.slots[i] = new DefaultSlot(this, i);
+        this.store = new SlotStore(getDimensions().getArea());
+    }
+
+    /**
+     * Returns the storage backing the slots of this menu.
+     *
+     * @return slot storage
+     */
+    public SlotStore getSlotStore() {
+        return store;
+    }
+
+    /**
+     * Returns the title of the inventory backing this menu.
+     *
+     * @return inventory title
+     */
+    public String getTitle() {
+        return inventoryTitle;
+    }
+
+    /**
+     * Returns the type of inventory backing this menu.
+     *
+     * @return inventory type
+     */
+    public InventoryType getType() {
+        return inventoryType == null ? InventoryType.CHEST : inventoryType;
+    }
+
+    /**
+     * Returns whether the menu accepts slot mutations from any thread.
+     *
+     * @return true if concurrent mode is enabled
+     * @see #setConcurrent(boolean)
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * Sets whether the menu accepts slot mutations from any thread.
+     *
+     * <p>In concurrent mode, changes made to slots or the menu contents from
+     * a thread other than the server thread are queued and applied in order the
+     * next time the menu is {@link #flush() flushed} on the server thread. Menus
+     * flush themselves before they are opened or updated, and before any change
+     * made on the server thread so that changes are never reordered.
+     *
+     * @param concurrent true to enable concurrent mode
+     */
+    public void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * Applies all changes queued from other threads while in concurrent mode.
+     *
+     * @throws IllegalStateException if not called from the server thread
+     */
+    public void flush() {
+        if (!Bukkit.isPrimaryThread()) {
+            throw new IllegalStateException("Menus can only be flushed from the server thread");
+        }
+        if (flushing) {
+            return;
+        }
+
+        flushing = true;
+        try {
+            Runnable mutation;
+            while ((mutation = pendingMutations.poll()) != null) {
+                // Changes for viewers that left are dropped by the changes themselves, so anything
+                // thrown here is a real failure, which must not keep the remaining changes from
+                // being applied
+                try {
+                    mutation.run();
+                } catch (RuntimeException e) {
+                    Bukkit.getLogger().log(Level.SEVERE, "Failed to apply queued change to menu " + inventoryTitle, e);
+                }
+            }
+        } finally {
+            flushing = false;
+        }
+    }
+
+    /**
+     * Returns whether changes queued from other threads are waiting to be flushed.
+     *
+     * @return true if there are pending changes
+     */
+    public boolean hasPendingMutations() {
+        return !pendingMutations.isEmpty();
+    }
+
+    /**
+     * Queues a change of the menu if it cannot be applied on the current thread.
+     *
+     * <p>Implementations of mutating operations call this method first and return
+     * immediately if it returns true. The mutation will then be run again on the
+     * server thread during the next flush.
+     *
+     * @param mutation operation to queue
+     * @return true if the mutation was queued, false if it should be applied now
+     */
+    public boolean deferMutation(Runnable mutation) {
+        if (!concurrent) {
+            return false;
+        } else if (!Bukkit.isPrimaryThread()) {
+            pendingMutations.add(mutation);
+            return true;
+        }
+        flush();
+        return false;
+    }
+
+    /**
+     * Returns the executor that changes to the inventories of viewers are run on.
+     *
+     * @return viewer executor
+     */
+    public ViewerExecutor getViewerExecutor() {
+        return viewerExecutor;
+    }
+
+    /**
+     * Sets the executor that changes to the inventories of viewers are run on.
+     * When a menu is viewed by players ticked on different threads, changes to
+     * each viewers inventory are handed to the executor separately.
+     *
+     * @param viewerExecutor viewer executor, or null to run changes in place
+     */
+    public void setViewerExecutor(ViewerExecutor viewerExecutor) {
+        this.viewerExecutor = viewerExecutor == null ? ViewerExecutor.DIRECT : viewerExecutor;
+    }
+
+    /**
+     * Returns the backend that writes slots to the windows of viewers.
+     *
+     * @return render backend
+     */
+    public RenderBackend getRenderBackend() {
+        return renderBackend;
+    }
+
+    /**
+     * Sets the backend that writes slots to the windows viewers have open.
+     * Windows that are being opened are always filled through their Bukkit
+     * inventory, as opening a window sends its entire contents.
+     *
+     * @param renderBackend render backend, or null to write to Bukkit inventories
+     */
+    public void setRenderBackend(RenderBackend renderBackend) {
+        this.renderBackend = renderBackend == null ? RenderBackend.BUKKIT : renderBackend;
+    }
+
+    /**
+     * Returns the name that metrics group measurements of this menu under. Unless
+     * set with {@link #setMetricsName(String)}, menus are grouped by class and size,
+     * such as {@code org.ipvp.canvas.type.ChestMenu 3x9}.
+     *
+     * @return metrics name
+     */
+    public String getMetricsName() {
+        String name = metricsName;
+        if (name == null) {
+            Dimension dimensions = getDimensions();
+            name = metricsName = getClass().getName() + " " + dimensions.getRows() + "x" + dimensions.getColumns();
         }
+        return name;
+    }
+
+    /**
+     * Sets the name that metrics group measurements of this menu under. Menus
+     * created from the same definition or prototype should share one name, and
+     * names should not depend on the viewer or title, as every distinct name is
+     * tracked separately.
+     *
+     * @param metricsName metrics name, or null to group by class and size
+     */
+    public void setMetricsName(String metricsName) {
+        this.metricsName = metricsName;
+    }
+
+    /**
+     * Returns whether viewers opening the menu share a single inventory.
+     *
+     * @return true if shared inventory mode is enabled
+     * @see #setSharedInventory(boolean)
+     */
+    public boolean isSharedInventory() {
+        return sharedInventory;
+    }
+
+    /**
+     * Sets whether viewers opening the menu share a single inventory.
+     *
+     * <p>In shared inventory mode, slots whose template is not
+     * {@link ItemStackTemplate#isViewerSpecific() viewer specific} are rendered
+     * once into one inventory that every viewer opens. Only viewer specific slots
+     * are rendered for each viewer, and are kept in a sparse overlay of their
+     * {@link MenuHolder} that the render backend displays on top of the shared
+     * inventory. Memory then grows with the amount of viewer specific slots
+     * rather than with viewers times slots.
+     *
+     * <p>The mode only takes effect for viewers opening the menu while the render
+     * backend {@link RenderBackend#supportsOverlays() supports overlays}. As the
+     * inventory is shared, click options of the menu should not allow items to
+     * be moved in or out of it.
+     *
+     * @param sharedInventory true to enable shared inventory mode
+     */
+    public void setSharedInventory(boolean sharedInventory) {
+        this.sharedInventory = sharedInventory;
     }
 
     @Override
@@ -101,40 +378,207 @@ public abstract class AbstractMenu implements Menu  {
 
     @Override
     public void open(Player viewer) {
-        InventoryHolder currentInventory =
-                viewer.getOpenInventory().getTopInventory().getHolder();
-        if (currentInventory instanceof MenuHolder) {
-            MenuHolder holder = (MenuHolder) currentInventory;
-            Menu open = holder.getMenu();
+        open(viewer, null, true);
+    }
+
+    /*
+     * Opens the menu for a player. Warm contents, if present, are displayed instead of
+     * rendering the templates of the menu. When recording, the menu the player is
+     * leaving is pushed onto their navigation history.
+     */
+    void open(Player viewer, ItemStack[] warm, boolean record) {
+        MenuMetrics.Span span = CanvasMetrics.get().beginOpen(this, viewer);
+        try {
+            display(viewer, warm, record);
+        } finally {
+            span.end();
+        }
+    }
+
+    private void display(Player viewer, ItemStack[] warm, boolean record) {
+        if (concurrent) {
+            flush();
+        }
+        if (warm == null) {
+            warm = Prerendering.take(this, viewer);
+        }
+
+        // The session holds the menu the player has open, if any, so their
+        // open inventory view never has to be resolved
+        MenuHolder holder = ViewerSessions.get(viewer);
+        if (holder != null) {
+            AbstractMenu open = (AbstractMenu) holder.getMenu();
 
             if (open == this) {
                 return;
             }
 
-            Inventory inventory;
+            if (record) {
+                Navigation.push(holder, open);
+            }
+            boolean redrawn = reuseWindow(viewer, holder);
 
-            if (isRedraw() && open.getDimensions().equals(getDimensions())) {
-                inventory = holder.getInventory();
-                ((AbstractMenu) open).closedByPlayer(viewer, false);
+            if (redrawn) {
+                // Only slots that differ are written to the window. The window stays open, but the
+                // previous menu is still closed for the player unless it redraws into its window
+                open.closedByPlayer(viewer, !open.isRedraw());
+                renderContents(holder, renderBackend, warm, true);
             } else {
-                open.close(viewer);
-                inventory = createInventory(holder);
-                holder.setInventory(inventory);
-                viewer.openInventory(inventory);
+                // Opening the new inventory closes the old one, so there is no need to close it first
+                open.closedByPlayer(viewer, true);
+                openWindow(holder, warm);
             }
 
-            updateInventoryContents(viewer, inventory);
             holder.setMenu(this);
-            holders.add(holder);
+            addHolder(holder);
+            CanvasMetrics.get().menuOpened(this, viewer, redrawn);
         } else {
             // Create new MenuHolder for the player
-            MenuHolder holder = new MenuHolder(viewer, this);
-            Inventory inventory = createInventory(holder);
-            updateInventoryContents(viewer, inventory);
-            holder.setInventory(inventory);
-            viewer.openInventory(inventory);
-            holders.add(holder);
+            holder = new MenuHolder(viewer, this);
+            openWindow(holder, warm);
+            addHolder(holder);
+            CanvasMetrics.get().menuOpened(this, viewer, false);
         }
+        Prerendering.prefetch(this, viewer);
+    }
+
+    /*
+     * Opens a new window for a holder. Private windows are filled through their Bukkit
+     * inventory before opening, as opening a window sends its entire contents. Viewers
+     * of a shared inventory have their overlay drawn once the window is open.
+     */
+    private void openWindow(MenuHolder holder, ItemStack[] warm) {
+        Player viewer = holder.getViewer();
+        holder.setTitle(inventoryTitle);
+        if (sharedInventory && renderBackend.supportsOverlays()) {
+            holder.setInventory(getSharedInventory(viewer));
+            viewer.openInventory(holder.getInventory());
+            renderContents(holder, renderBackend, warm, false);
+        } else {
+            holder.setInventory(createInventory(holder));
+            renderContents(holder, RenderBackend.BUKKIT, warm, false);
+            viewer.openInventory(holder.getInventory());
+        }
+    }
+
+    /* Returns the shared inventory, rendering its slots if no viewer is sharing it yet */
+    private Inventory getSharedInventory(Player viewer) {
+        if (shared == null) {
+            SharedMenuHolder holder = new SharedMenuHolder(this);
+            shared = createInventory(holder);
+            holder.setInventory(shared);
+        }
+        if (sharingViewers == 0) {
+            for (int i = 0 ; i < store.size() ; i++) {
+                ItemStackTemplate template = store.getTemplate(i);
+                boolean canonical = template != null && !template.isViewerSpecific();
+                setSharedItem(i, canonical ? render(template, i, viewer) : null);
+            }
+        }
+        return shared;
+    }
+
+    private boolean isSharing(MenuHolder holder) {
+        return shared != null && holder.getInventory() == shared;
+    }
+
+    /* Returns the viewers of the shared inventory */
+    List<Player> getSharingViewers() {
+        List<Player> viewers = new ArrayList<>();
+        for (MenuHolder holder : holders.values()) {
+            if (isSharing(holder)) {
+                viewers.add(holder.getViewer());
+            }
+        }
+        return viewers;
+    }
+
+    private Player findSharingViewer() {
+        for (MenuHolder holder : holders.values()) {
+            if (isSharing(holder)) {
+                return holder.getViewer();
+            }
+        }
+        return null;
+    }
+
+    private void setSharedItem(int index, ItemStack item) {
+        if (!isSameItem(shared.getItem(index), item)) {
+            shared.setItem(index, item);
+        }
+    }
+
+    /*
+     * Re-renders the slots of the shared inventory that are not viewer specific,
+     * optionally only those with a tagged template. Returns whether any were rendered.
+     */
+    boolean renderShared(String tag) {
+        Player viewer = sharingViewers == 0 ? null : findSharingViewer();
+        if (viewer == null) {
+            return false;
+        }
+        boolean rendered = false;
+        for (int i = 0 ; i < store.size() ; i++) {
+            ItemStackTemplate template = store.getTemplate(i);
+            if (template == null || template.isViewerSpecific()) {
+                continue;
+            } else if (tag == null || template instanceof TaggedItemTemplate && ((TaggedItemTemplate) template).hasTag(tag)) {
+                setSharedItem(i, render(template, i, viewer));
+                rendered = true;
+            }
+        }
+        return rendered;
+    }
+
+    private void addHolder(MenuHolder holder) {
+        ViewerSessions.put(holder);
+        if (isSharing(holder)) {
+            sharingViewers++;
+        }
+        if (holders.put(holder.getViewer().getUniqueId(), holder) == null) {
+            MenuRegistry.get().register(this);
+            CanvasMetrics.get().viewerAdded(this, holder.getViewer());
+        }
+    }
+
+    /*
+     * Returns whether this menu can be drawn into the window a player has open. Windows
+     * are reused when their inventory type and size match and the title is identical
+     * or can be changed. Redrawn menus reuse windows regardless of title.
+     */
+    private boolean reuseWindow(Player viewer, MenuHolder holder) {
+        Inventory inventory = holder.getInventory();
+        if (inventory.getHolder() != holder || sharedInventory && renderBackend.supportsOverlays()) {
+            // Shared inventories are never drawn into by other menus
+            return false;
+        } else if (inventory.getType() != getType() || inventory.getSize() != store.size()) {
+            return false;
+        } else if (Objects.equals(holder.getTitle(), inventoryTitle)) {
+            return true;
+        } else if (titleAdapter.updateTitle(viewer, inventory, inventoryTitle)) {
+            holder.setTitle(inventoryTitle);
+            return true;
+        }
+        return isRedraw();
+    }
+
+    /**
+     * Returns the adapter used to change the titles of open windows.
+     *
+     * @return title adapter
+     */
+    public static TitleAdapter getTitleAdapter() {
+        return titleAdapter;
+    }
+
+    /**
+     * Sets the adapter used to change the titles of open windows, allowing
+     * menus with different titles to reuse the window a player has open.
+     *
+     * @param adapter title adapter, or null to always reopen windows to change titles
+     */
+    public static void setTitleAdapter(TitleAdapter adapter) {
+        titleAdapter = adapter == null ? TitleAdapter.NONE : adapter;
     }
 
     private Inventory createInventory(InventoryHolder holder) {
@@ -143,29 +587,272 @@ public abstract class AbstractMenu implements Menu  {
                 : Bukkit.createInventory(holder, inventoryType, inventoryTitle);
     }
 
-    private void updateInventoryContents(Player viewer, Inventory inventory) {
-        for (Slot slot : slots) {
-            inventory.setItem(slot.getIndex(), slot.getItem(viewer));
+    /* Renders every slot and sends the contents to the viewer */
+    void updateInventoryContents(MenuHolder holder) {
+        renderContents(holder, renderBackend, null, false);
+        renderBackend.complete(holder);
+    }
+
+    /*
+     * Draws every slot into the window of a holder through a backend, optionally only
+     * writing items that differ from the current contents. Warm contents are drawn if
+     * present, otherwise slots are rendered. Viewers of a shared inventory only have
+     * their viewer specific slots drawn, and overlays of slots that are no longer
+     * viewer specific removed.
+     */
+    private void renderContents(MenuHolder holder, RenderBackend backend, ItemStack[] warm, boolean diff) {
+        if (warm != null && warm.length != store.size()) {
+            warm = null;
+        }
+        MenuMetrics metrics = CanvasMetrics.get();
+        boolean timed = metrics != MenuMetrics.NONE && warm == null;
+        boolean overlay = isSharing(holder);
+        int rendered = 0;
+        Player viewer = holder.getViewer();
+
+        // Placeholders used by many slots are resolved once for the whole render
+        MenuMetrics.Span span = metrics.beginRender(this, viewer);
+        RenderContext.beginPass();
+        try {
+            for (int i = 0 ; i < store.size() ; i++) {
+                ItemStackTemplate template = store.getTemplate(i);
+                if (overlay && (template == null || !template.isViewerSpecific())) {
+                    if (holder.removeOverlay(i)) {
+                        backend.setSlot(holder, i, shared.getItem(i));
+                    }
+                    continue;
+                }
+
+                ItemStack item;
+                if (warm != null) {
+                    item = warm[i];
+                } else if (template == null) {
+                    item = null;
+                } else if (timed && metrics.shouldSample()) {
+                    long start = System.nanoTime();
+                    item = render(template, i, viewer);
+                    metrics.templateRendered(this, i, template, System.nanoTime() - start);
+                    rendered++;
+                } else {
+                    item = render(template, i, viewer);
+                    rendered++;
+                }
+
+                if (diff && holder.isWritten(i, item)) {
+                    continue;
+                }
+                boolean changed;
+                long fingerprint = ItemFingerprint.EMPTY;
+                if (!diff) {
+                    changed = true;
+                } else if (holder.isKnown(i)) {
+                    // Avoids reading the item back from the inventory
+                    fingerprint = template == null ? ItemFingerprint.of(item) : template.getFingerprint(item);
+                    changed = !holder.isSameAsWritten(i, item, fingerprint);
+                } else {
+                    changed = !isSameItem(holder.getItem(i), item);
+                }
+                if (overlay) {
+                    holder.setOverlay(i, item);
+                } else {
+                    holder.setWritten(i, item, fingerprint);
+                }
+                if (changed) {
+                    backend.setSlot(holder, i, item);
+                }
+            }
+
+            if (timed) {
+                metrics.menuRendered(this, viewer, rendered, store.size() - rendered);
+            }
+        } finally {
+            RenderContext.endPass();
+            span.end();
         }
-        viewer.updateInventory();
+    }
+
+    private static boolean isSameItem(ItemStack current, ItemStack item) {
+        boolean currentEmpty = current == null || current.getType() == Material.AIR;
+        boolean itemEmpty = item == null || item.getType() == Material.AIR;
+        return currentEmpty || itemEmpty ? currentEmpty == itemEmpty : current.equals(item);
+    }
+
+    /**
+     * Renders the template of a slot for a player. Values read by the template
+     * through a {@link org.ipvp.canvas.template.Signal} are recorded as dependencies
+     * of the slot for that player.
+     *
+     * @param viewer player to render for
+     * @param index slot index
+     * @return rendered item
+     */
+    public ItemStack renderSlot(Player viewer, int index) {
+        ItemStackTemplate template = store.getTemplate(index);
+        return template == null ? null : render(template, index, viewer);
+    }
+
+    ItemStack render(ItemStackTemplate template, int index, Player viewer) {
+        RenderContext context = RenderContext.enter(this, index, viewer);
+        try {
+            return template.getItem(viewer);
+        } finally {
+            context.exit();
+        }
+    }
+
+    /**
+     * Re-renders a single slot for a player viewing the menu, leaving all
+     * other slots untouched.
+     *
+     * @param viewer player viewing the menu
+     * @param index slot index
+     */
+    public void updateSlot(Player viewer, int index) {
+        if (deferMutation(() -> updateSlot(viewer, index))) {
+            return;
+        }
+        MenuHolder holder = findHolder(viewer);
+        if (holder != null && isSharing(holder) && !isViewerSpecific(index)) {
+            // The slot is shared, so it is rendered for every viewer at once
+            setSharedItem(index, renderSlot(viewer, index));
+        } else if (holder != null) {
+            viewerExecutor.execute(viewer, () -> setRawItem(holder, index, renderSlot(viewer, index)));
+        } else {
+            // Contents rendered ahead of time for the viewer depend on the slot and are now outdated
+            Prerendering.discard(this, viewer);
+        }
+    }
+
+    /**
+     * Renders a slot for every viewer of the menu, such as after its template
+     * was changed. Viewers sharing an inventory have the slot rendered once
+     * unless its template is viewer specific.
+     *
+     * @param index slot index
+     */
+    public void refreshSlot(int index) {
+        if (deferMutation(() -> refreshSlot(index))) {
+            return;
+        }
+        boolean viewerSpecific = isViewerSpecific(index);
+        Player sharingViewer = sharingViewers == 0 ? null : findSharingViewer();
+        if (sharingViewer != null) {
+            setSharedItem(index, viewerSpecific ? null : renderSlot(sharingViewer, index));
+        }
+
+        for (MenuHolder holder : holders.values()) {
+            Player viewer = holder.getViewer();
+            if (!isSharing(holder) || viewerSpecific) {
+                viewerExecutor.execute(viewer, () -> setRawItem(holder, index, renderSlot(viewer, index)));
+            } else if (holder.removeOverlay(index)) {
+                viewerExecutor.execute(viewer, () -> renderBackend.setSlot(holder, index, shared.getItem(index)));
+            }
+        }
+    }
+
+    /**
+     * Writes an item to a slot of the window a viewer has open without changing
+     * the template of the slot. Items written to a shared inventory are only
+     * displayed to the viewer.
+     *
+     * @param holder holder of the viewers window
+     * @param index slot index
+     * @param item item to display
+     */
+    public void setRawItem(MenuHolder holder, int index, ItemStack item) {
+        if (isSharing(holder)) {
+            holder.setOverlay(index, item);
+        } else {
+            holder.setWritten(index, item);
+        }
+        renderBackend.setSlot(holder, index, item);
+    }
+
+    private boolean isViewerSpecific(int index) {
+        ItemStackTemplate template = store.getTemplate(index);
+        return template != null && template.isViewerSpecific();
+    }
+
+    /* Renders every slot for a holder without completing the render */
+    void renderContents(MenuHolder holder) {
+        renderContents(holder, renderBackend, null, false);
+    }
+
+    /* Renders the slots with a tagged template for a holder, returning whether any were rendered */
+    boolean renderTagged(MenuHolder holder, String tag) {
+        boolean rendered = false;
+        boolean overlay = isSharing(holder);
+        RenderContext.beginPass();
+        try {
+            for (int i = 0 ; i < store.size() ; i++) {
+                ItemStackTemplate template = store.getTemplate(i);
+                if (!(template instanceof TaggedItemTemplate) || !((TaggedItemTemplate) template).hasTag(tag)) {
+                    continue;
+                } else if (overlay && !template.isViewerSpecific()) {
+                    // Shared slots are rendered once for every viewer by renderShared
+                    continue;
+                } else {
+                    setRawItem(holder, i, render(template, i, holder.getViewer()));
+                    rendered = true;
+                }
+            }
+        } finally {
+            RenderContext.endPass();
+        }
+        return rendered;
     }
 
     @Override
     public Collection<Player> getViewers() {
-        return getHolders().stream().map(MenuHolder::getViewer).collect(Collectors.toSet());
+        return holders.values().stream().map(MenuHolder::getViewer).collect(Collectors.toSet());
+    }
+
+    /**
+     * Performs an action for each player viewing the menu, without copying
+     * the viewers into a new collection.
+     *
+     * @param action action to perform
+     */
+    public void forEachViewer(Consumer<? super Player> action) {
+        for (MenuHolder holder : holders.values()) {
+            action.accept(holder.getViewer());
+        }
+    }
+
+    /**
+     * Returns the amount of players viewing the menu.
+     *
+     * @return viewer count
+     */
+    public int getViewerCount() {
+        return holders.size();
+    }
+
+    /**
+     * Returns the holder of the inventory a player is viewing this menu in.
+     *
+     * @param viewer player
+     * @return menu holder, if the player is viewing the menu
+     */
+    public Optional<MenuHolder> getHolder(Player viewer) {
+        return Optional.ofNullable(findHolder(viewer));
+    }
+
+    private MenuHolder findHolder(Player viewer) {
+        MenuHolder holder = holders.get(viewer.getUniqueId());
+        return holder != null && holder.getMenu() == this ? holder : null;
     }
 
     @Override
     public boolean isOpen(Player viewer) {
-        InventoryHolder currentInventory =
-                viewer.getOpenInventory().getTopInventory().getHolder();
-        return currentInventory instanceof MenuHolder &&
-                ((MenuHolder) currentInventory).getMenu() == this;
+        return findHolder(viewer) != null;
     }
 
     @Override
     public void close() {
-        getViewers().forEach(this::close);
+        for (MenuHolder holder : holders.values()) {
+            close(holder.getViewer());
+        }
     }
 
     @Override
@@ -176,39 +863,94 @@ public abstract class AbstractMenu implements Menu  {
 
     @Override
     public void update() {
-        getViewers().forEach(this::update);
+        if (deferMutation(this::update)) {
+            return;
+        }
+        renderShared(null);
+        for (MenuHolder holder : holders.values()) {
+            viewerExecutor.execute(holder.getViewer(), () -> update(holder));
+        }
     }
 
     @Override
     public void update(Player viewer) throws IllegalStateException {
-        if (!isOpen(viewer)) {
+        if (deferMutation(() -> update(viewer))) {
             return;
         }
+        MenuHolder holder = findHolder(viewer);
+        if (holder != null) {
+            viewerExecutor.execute(viewer, () -> update(holder));
+        }
+    }
 
-        InventoryHolder openInventory = viewer.getOpenInventory().getTopInventory().getHolder();
-        updateInventoryContents(viewer, openInventory.getInventory());
+    /* Renders every slot for a holder, unless the viewer left the menu in the meantime */
+    private void update(MenuHolder holder) {
+        if (holder.getMenu() != this) {
+            return;
+        }
+        updateInventoryContents(holder);
+        CanvasMetrics.get().menuUpdated(this, holder.getViewer());
     }
 
     public void closedByPlayer(Player viewer, boolean triggerCloseHandler) {
-        if (!isOpen(viewer)) {
+        MenuHolder holder = findHolder(viewer);
+        if (holder == null || !holders.remove(viewer.getUniqueId(), holder)) {
             return;
         }
+        if (isSharing(holder)) {
+            sharingViewers--;
+        }
+        ViewerSessions.remove(holder);
+        Prerendering.leave(this, viewer);
 
-        MenuHolder holder = (MenuHolder)
-                viewer.getOpenInventory().getTopInventory().getHolder();
-        holders.remove(holder);
+        CanvasMetrics.get().viewerRemoved(this, viewer);
         if (triggerCloseHandler) {
             getCloseHandler().ifPresent(h -> h.close(viewer, this));
         }
+
+        if (holders.isEmpty()) {
+            MenuRegistry.get().unregister(this);
+
+            // Hand pooled menus back once the last viewer has left
+            if (pool != null) {
+                pool.release(this);
+            }
+        }
+    }
+
+    /**
+     * Restores the menu to the state it was in when first built. All slots
+     * are emptied and reverted to {@link ClickOptions#DENY_ALL}
+     * with no click handler, the close and cursor drop handlers are removed,
+     * and concurrent mode, shared inventory mode, the metrics name, the viewer
+     * executor and the render backend are reverted to their defaults.
+     *
+     * <p>Called by {@link MenuPool} before a menu is reused.
+     */
+    protected void reset() {
+        pendingMutations.clear();
+        if (prerenders != null) {
+            prerenders.clear();
+        }
+        store.clear();
+        this.handler = null;
+        this.cursorDropHandler = null;
+        this.concurrent = false;
+        this.viewerExecutor = ViewerExecutor.DIRECT;
+        this.renderBackend = RenderBackend.BUKKIT;
+        this.sharedInventory = false;
+        this.shared = null;
+        this.sharingViewers = 0;
+        this.metricsName = null;
     }
 
     public Set<MenuHolder> getHolders() {
-        return Collections.unmodifiableSet(holders);
+        return holderView;
     }
 
     @Override
     public List<Slot> getSlots() {
-        return Arrays.asList(slots);
+        return Arrays.asList(createSlots());
     }
 
     @Override
@@ -220,7 +962,22 @@ public abstract class AbstractMenu implements Menu  {
 
     @Override
     public Slot getSlot(int index) {
-        return slots[index];
+        if (slots == null) {
+            slots = new DefaultSlot[store.size()];
+        }
+        DefaultSlot slot = slots[index];
+        if (slot == null) {
+            slot = slots[index] = new DefaultSlot(this, index);
+        }
+        return slot;
+    }
+
+    /* Creates any slot objects that have not been requested yet */
+    private Slot[] createSlots() {
+        for (int i = 0 ; i < store.size() ; i++) {
+            getSlot(i);
+        }
+        return slots;
     }
 
     @Override
@@ -233,13 +990,33 @@ public abstract class AbstractMenu implements Menu  {
 
     @Override
     public Iterator<Slot> iterator() {
-        return new ArrayIterator<>(slots);
+        return new ArrayIterator<>(createSlots());
     }
 
     @Override
     public void clear() {
-        for (Slot slot : slots) {
-            slot.setItem((ItemStack) null);
+        if (deferMutation(this::clear)) {
+            return;
+        }
+
+        StaticItemTemplate empty = new StaticItemTemplate(null);
+        for (int i = 0 ; i < store.size() ; i++) {
+            store.setTemplate(i, empty);
+        }
+        if (shared != null) {
+            shared.clear();
+        }
+        for (MenuHolder holder : holders.values()) {
+            viewerExecutor.execute(holder.getViewer(), () -> {
+                boolean overlay = isSharing(holder);
+                for (int i = 0 ; i < store.size() ; i++) {
+                    if (!overlay) {
+                        setRawItem(holder, i, null);
+                    } else if (holder.removeOverlay(i)) {
+                        renderBackend.setSlot(holder, i, null);
+                    }
+                }
+            });
         }
     }
 
@@ -269,6 +1046,26 @@ public abstract class AbstractMenu implements Menu  {
         this.cursorDropHandler = handler;
     }
 
+    /* Unmodifiable view of the holders of the menu */
+    private final class HolderSet extends AbstractSet<MenuHolder> {
+
+        @Override
+        public Iterator<MenuHolder> iterator() {
+            return Collections.unmodifiableCollection(holders.values()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return holders.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof MenuHolder && !(o instanceof SharedMenuHolder)
+                    && holders.get(((MenuHolder) o).getViewer().getUniqueId()) == o;
+        }
+    }
+
     /**
      * Abstract base class for builders of {@link Menu} types.
      * <p>
@@ -320,5 +1117,14 @@ public abstract class AbstractMenu implements Menu  {
         public boolean isRedraw() {
             return redraw;
         }
+
+        /**
+         * Returns the type of inventory that backs menus created by this builder.
+         *
+         * @return inventory type
+         */
+        public InventoryType getType() {
+            return InventoryType.CHEST;
+        }
     }
 }
@@ -40,6 +40,15 @@ public class BoxMenu extends AbstractMenu {
         super(title, type, menu, redraw);
     }
 
+    protected BoxMenu(BoxMenu prototype) {
+        super(prototype);
+    }
+
+    @Override
+    protected BoxMenu copy() {
+        return new BoxMenu(this);
+    }
+
     /**
      * Returns a new builder. The Menu generated will be backed by an inventory with
      * a provided type
@@ -76,6 +85,11 @@ public class BoxMenu extends AbstractMenu {
             this.type = type;
         }
 
+        @Override
+        public InventoryType getType() {
+            return type;
+        }
+
         @Override
         public BoxMenu build() {
             return new BoxMenu(getTitle(), type, getParent(), isRedraw());
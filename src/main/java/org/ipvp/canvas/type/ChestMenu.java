@@ -34,6 +34,15 @@ public class ChestMenu extends AbstractMenu {
         super(title, slots, menu, redraw);
     }
 
+    protected ChestMenu(ChestMenu prototype) {
+        super(prototype);
+    }
+
+    @Override
+    protected ChestMenu copy() {
+        return new ChestMenu(this);
+    }
+
     /**
      * Returns a new builder.
      *
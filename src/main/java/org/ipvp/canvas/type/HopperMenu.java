@@ -35,6 +35,15 @@ public class HopperMenu extends AbstractMenu {
         super(title, InventoryType.HOPPER, menu, redraw);
     }
 
+    protected HopperMenu(HopperMenu prototype) {
+        super(prototype);
+    }
+
+    @Override
+    protected HopperMenu copy() {
+        return new HopperMenu(this);
+    }
+
     /**
      * Returns a new builder. The Menu generated will be backed by a Hopper inventory.
      */
@@ -56,6 +65,11 @@ public class HopperMenu extends AbstractMenu {
             super(new Dimension(1, 5));
         }
 
+        @Override
+        public InventoryType getType() {
+            return InventoryType.HOPPER;
+        }
+
         @Override
         public HopperMenu build() {
             return new HopperMenu(getTitle(), getParent(), isRedraw());
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.entity.Player;
+
+/**
+ * A {@link ViewerExecutor} that runs work on a fixed amount of local threads,
+ * always running the work of a player on the same thread.
+ * <p>
+ * This executor stands in for the per-player threads of a region threaded
+ * server, so that menus viewed by players on different threads can be
+ * exercised without one.
+ */
+public class LocalViewerExecutor implements ViewerExecutor, AutoCloseable {
+
+    private final ExecutorService[] threads;
+
+    /**
+     * Creates an executor with a number of threads.
+     *
+     * @param threads amount of threads
+     */
+    public LocalViewerExecutor(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.threads = new ExecutorService[threads];
+        for (int i = 0 ; i < threads ; i++) {
+            int index = i;
+            this.threads[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "canvas-viewer-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public void execute(Player viewer, Runnable task) {
+        int hash = viewer.getUniqueId().hashCode();
+        threads[(hash & Integer.MAX_VALUE) % threads.length].execute(task);
+    }
+
+    /**
+     * Waits for all submitted work to complete and stops the threads.
+     *
+     * @param timeout maximum time to wait
+     * @param unit timeout unit
+     * @return true if all work completed before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean completed = true;
+        for (ExecutorService thread : threads) {
+            thread.shutdown();
+        }
+        for (ExecutorService thread : threads) {
+            completed &= thread.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        return completed;
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService thread : threads) {
+            thread.shutdownNow();
+        }
+    }
+}
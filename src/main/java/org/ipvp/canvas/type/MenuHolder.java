@@ -23,18 +23,34 @@
 
 package org.ipvp.canvas.type;
 
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
 import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.template.ItemFingerprint;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 public class MenuHolder implements InventoryHolder {
 
+    // Marks slots of a window whose contents are not known
+    private static final ItemStack UNKNOWN = new ItemStack(Material.AIR);
+
     private Player viewer;
     private Menu menu;
     private Inventory inventory;
+    private String title;
+    private Deque<Navigation.Entry> history;
+    private Map<Integer, ItemStack> overlays;
+    private ItemStack[] written;
+    private long[] fingerprints;
 
     MenuHolder(Player viewer, Menu menu) {
         this(viewer, menu, null);
@@ -67,5 +83,130 @@ public class MenuHolder implements InventoryHolder {
     void setInventory(Inventory inventory) {
         Objects.requireNonNull(inventory);
         this.inventory = inventory;
+        this.overlays = null;
+        this.written = null;
+        this.fingerprints = null;
+    }
+
+    /**
+     * Returns the title of the window the inventory is displayed in.
+     *
+     * @return window title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Returns the item displayed to the viewer in a slot. When the inventory
+     * is shared with other viewers, items rendered for this viewer alone are
+     * returned in place of the shared item.
+     *
+     * @param slot slot index
+     * @return displayed item
+     */
+    public ItemStack getItem(int slot) {
+        if (overlays != null && overlays.containsKey(slot)) {
+            return overlays.get(slot);
+        }
+        return inventory.getItem(slot);
+    }
+
+    /**
+     * Returns whether an item rendered for this viewer alone is displayed
+     * in a slot of a shared inventory.
+     *
+     * @param slot slot index
+     * @return true if the slot is overlaid
+     */
+    public boolean hasOverlay(int slot) {
+        return overlays != null && overlays.containsKey(slot);
+    }
+
+    void setOverlay(int slot, ItemStack item) {
+        if (overlays == null) {
+            overlays = new HashMap<>();
+        }
+        overlays.put(slot, item);
+    }
+
+    boolean removeOverlay(int slot) {
+        if (overlays == null || !overlays.containsKey(slot)) {
+            return false;
+        }
+        overlays.remove(slot);
+        return true;
+    }
+
+    void clearOverlays() {
+        overlays = null;
+    }
+
+    /*
+     * Returns whether an item is the same instance as the item last written to a slot.
+     * Templates returning interned items are recognized as unchanged this way without
+     * comparing item meta.
+     */
+    boolean isWritten(int slot, ItemStack item) {
+        if (overlays != null && overlays.containsKey(slot)) {
+            return overlays.get(slot) == item;
+        }
+        return isKnown(slot) && written[slot] == item;
+    }
+
+    /* Returns whether the item last written to a slot is known */
+    boolean isKnown(int slot) {
+        return written != null && written[slot] != UNKNOWN;
+    }
+
+    /*
+     * Returns whether an item equals the item last written to a slot, comparing
+     * fingerprints before item meta. The slot must be known.
+     */
+    boolean isSameAsWritten(int slot, ItemStack item, long fingerprint) {
+        if (fingerprints[slot] == ItemFingerprint.EMPTY) {
+            fingerprints[slot] = ItemFingerprint.of(written[slot]);
+        }
+        return ItemFingerprint.equals(written[slot], fingerprints[slot], item, fingerprint);
+    }
+
+    void setWritten(int slot, ItemStack item) {
+        setWritten(slot, item, ItemFingerprint.EMPTY);
+    }
+
+    /*
+     * Records the item written to a slot along with its fingerprint if it is already
+     * known, or EMPTY to compute it on the first comparison, as most writes are never
+     * compared.
+     */
+    void setWritten(int slot, ItemStack item, long fingerprint) {
+        if (written == null) {
+            written = new ItemStack[inventory.getSize()];
+            fingerprints = new long[written.length];
+            Arrays.fill(written, UNKNOWN);
+        }
+        written[slot] = item;
+        fingerprints[slot] = fingerprint;
+    }
+
+    /**
+     * Forgets which items were last written to the window, so that changes
+     * made to the inventory outside of the menu are not mistaken for items
+     * the menu rendered.
+     */
+    public void invalidateContents() {
+        written = null;
+        fingerprints = null;
+    }
+
+    Deque<Navigation.Entry> getHistory() {
+        if (history == null) {
+            history = new ArrayDeque<>();
+        }
+        return history;
     }
 }
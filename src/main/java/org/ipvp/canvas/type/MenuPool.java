@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bukkit.event.inventory.InventoryType;
+import org.ipvp.canvas.Menu;
+
+/**
+ * A pool of reusable menus.
+ *
+ * <p>Menus are keyed by the configuration of the builder used to acquire them
+ * (inventory type, dimensions, title, parent and redraw flag). When a builder
+ * with a matching configuration is passed to {@link #acquire(AbstractMenu.Builder)}
+ * an idle menu is handed out instead of building a new one. Acquired menus are
+ * automatically returned to the pool once the last player viewing them closes
+ * the menu, at which point the menu is reset to an empty state.
+ *
+ * <p>Since a menu may be reused as soon as it has been returned, references
+ * to an acquired menu should not be kept after it has been closed. Menus that
+ * are acquired but never opened should be handed back with {@link #release(AbstractMenu)}.
+ */
+public class MenuPool {
+
+    /**
+     * The default number of idle menus kept for every builder configuration.
+     */
+    public static final int DEFAULT_MAX_IDLE = 16;
+
+    private final int maxIdle;
+    private final Map<Key, Deque<AbstractMenu>> idle = new HashMap<>();
+    private final Map<AbstractMenu, Key> keys = new HashMap<>();
+    private long hits;
+    private long misses;
+
+    public MenuPool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxIdle maximum amount of idle menus kept per builder configuration
+     * @throws IllegalArgumentException if maxIdle is negative
+     */
+    public MenuPool(int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle cannot be negative");
+        }
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns an empty menu matching the configuration of the builder. If the
+     * pool does not contain an idle menu for the configuration a new menu is built.
+     *
+     * @param builder menu builder
+     * @return pooled menu
+     */
+    public synchronized AbstractMenu acquire(AbstractMenu.Builder<?> builder) {
+        Objects.requireNonNull(builder, "builder cannot be null");
+        Key key = new Key(builder);
+        Deque<AbstractMenu> available = idle.get(key);
+        AbstractMenu menu = available == null ? null : available.poll();
+
+        if (menu == null) {
+            misses++;
+            menu = (AbstractMenu) builder.build();
+        } else {
+            hits++;
+        }
+
+        menu.pool = this;
+        keys.put(menu, key);
+        return menu;
+    }
+
+    /**
+     * Returns a menu to the pool. The menu is reset and becomes available to
+     * be handed out again.
+     *
+     * <p>Menus are released automatically when the last viewer closes them, so
+     * this method only needs to be called for menus that were never opened.
+     *
+     * @param menu menu to release
+     * @throws IllegalArgumentException if the menu was not acquired from this pool
+     * @throws IllegalStateException if the menu is still being viewed
+     */
+    public synchronized void release(AbstractMenu menu) {
+        if (menu.pool == null) {
+            return; // Already released
+        } else if (menu.pool != this) {
+            throw new IllegalArgumentException("menu was not acquired from this pool");
+        } else if (!menu.getHolders().isEmpty()) {
+            throw new IllegalStateException("menu is still being viewed");
+        }
+
+        Key key = keys.remove(menu);
+        menu.pool = null;
+        menu.reset();
+
+        Deque<AbstractMenu> available = idle.computeIfAbsent(key, k -> new ArrayDeque<>());
+        if (available.size() < maxIdle) {
+            available.push(menu);
+        }
+    }
+
+    /**
+     * Removes all idle menus from the pool. Menus that are currently
+     * acquired are not affected.
+     */
+    public synchronized void clear() {
+        idle.clear();
+    }
+
+    /**
+     * Returns the amount of times a menu was served from the pool.
+     *
+     * @return pool hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the amount of times a new menu had to be built because
+     * no idle menu was available.
+     *
+     * @return pool misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the amount of menus that have been acquired and not
+     * yet returned to the pool.
+     *
+     * @return live menu count
+     */
+    public synchronized int getLiveCount() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the amount of idle menus held by the pool.
+     *
+     * @return idle menu count
+     */
+    public synchronized int getIdleCount() {
+        int count = 0;
+        for (Deque<AbstractMenu> available : idle.values()) {
+            count += available.size();
+        }
+        return count;
+    }
+
+    /* The builder configuration a pooled menu was created with */
+    private static final class Key {
+
+        private final Class<?> builderType;
+        private final InventoryType inventoryType;
+        private final Menu.Dimension dimensions;
+        private final String title;
+        private final Menu parent;
+        private final boolean redraw;
+
+        Key(AbstractMenu.Builder<?> builder) {
+            this.builderType = builder.getClass();
+            this.inventoryType = builder.getType();
+            this.dimensions = builder.getDimensions();
+            this.title = builder.getTitle();
+            this.parent = builder.getParent();
+            this.redraw = builder.isRedraw();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(builderType, inventoryType, dimensions, title, parent, redraw);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            } else if (!(other instanceof Key)) {
+                return false;
+            }
+
+            Key o = (Key) other;
+            return o.builderType == builderType && o.inventoryType == inventoryType
+                    && o.dimensions.equals(dimensions) && Objects.equals(o.title, title)
+                    && o.parent == parent && o.redraw == redraw;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import java.util.Objects;
+
+import org.ipvp.canvas.Menu;
+
+/**
+ * A fully configured menu that can be cheaply instantiated many times.
+ *
+ * <p>A prototype captures the slot templates, options and handlers as well as
+ * the close and cursor drop handlers of a menu at the time it is created. Menus
+ * created from the prototype share the captured slot state until a slot of the
+ * new menu is modified, so creating a copy of a configured menu does not require
+ * running builders or applying masks again.
+ *
+ * <p>Changes made to the source menu after the prototype is created are not
+ * reflected in the prototype.
+ */
+public final class MenuPrototype {
+
+    private final AbstractMenu prototype;
+
+    private MenuPrototype(AbstractMenu prototype) {
+        this.prototype = prototype;
+    }
+
+    /**
+     * Creates a prototype from the current state of a menu.
+     *
+     * @param menu configured menu
+     * @return menu prototype
+     * @throws IllegalArgumentException if the menu is not an {@link AbstractMenu}
+     * @throws UnsupportedOperationException if the menu type does not support copying
+     */
+    public static MenuPrototype of(Menu menu) {
+        Objects.requireNonNull(menu, "menu cannot be null");
+        if (!(menu instanceof AbstractMenu)) {
+            throw new IllegalArgumentException("menu must extend AbstractMenu");
+        }
+        return new MenuPrototype(((AbstractMenu) menu).copy());
+    }
+
+    /**
+     * Creates a new menu from the prototype.
+     *
+     * @return new menu
+     */
+    public AbstractMenu newMenu() {
+        return prototype.copy();
+    }
+
+    /**
+     * Returns the dimensions of menus created by this prototype.
+     *
+     * @return menu dimensions
+     */
+    public Menu.Dimension getDimensions() {
+        return prototype.getDimensions();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.bukkit.entity.Player;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.metrics.CanvasMetrics;
+
+/**
+ * A registry of all menus that are currently open for at least one player.
+ * <p>
+ * Menus register themselves when their first viewer opens them and unregister
+ * when their last viewer leaves. Menus are only weakly referenced, so a menu
+ * that is never closed properly will not be kept alive by the registry.
+ * <p>
+ * Bulk operations visit every matching menu in a single pass. Each viewer
+ * is sent at most one full inventory update per operation, no matter how many
+ * slots are re-rendered for them.
+ */
+public final class MenuRegistry {
+
+    private static final MenuRegistry GLOBAL = new MenuRegistry();
+
+    private final Set<AbstractMenu> menus = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private MenuRegistry() {
+
+    }
+
+    /**
+     * Returns the registry of open menus.
+     *
+     * @return menu registry
+     */
+    public static MenuRegistry get() {
+        return GLOBAL;
+    }
+
+    synchronized void register(AbstractMenu menu) {
+        menus.add(menu);
+    }
+
+    synchronized void unregister(AbstractMenu menu) {
+        menus.remove(menu);
+    }
+
+    /**
+     * Returns a snapshot of the menus that are currently open.
+     *
+     * @return open menus
+     */
+    public synchronized List<AbstractMenu> getMenus() {
+        return new ArrayList<>(menus);
+    }
+
+    /**
+     * Returns the amount of menus that are currently open.
+     *
+     * @return open menu count
+     */
+    public synchronized int size() {
+        return menus.size();
+    }
+
+    /**
+     * Updates every open menu of a type for all of its viewers.
+     *
+     * @param type menu type
+     */
+    public void update(Class<? extends Menu> type) {
+        update(type::isInstance);
+    }
+
+    /**
+     * Updates every open menu that matches a filter for all of its viewers.
+     *
+     * @param filter menus to update
+     */
+    public void update(Predicate<? super AbstractMenu> filter) {
+        render(filter, menu -> menu.renderShared(null), (menu, holder) -> {
+            menu.renderContents(holder);
+            CanvasMetrics.get().menuUpdated(menu, holder.getViewer());
+            return true;
+        });
+    }
+
+    /**
+     * Re-renders every slot of every open menu whose template is a
+     * {@link org.ipvp.canvas.template.TaggedItemTemplate} with a tag.
+     *
+     * @param tag tag of the templates to re-render
+     */
+    public void updateTagged(String tag) {
+        render(menu -> true, menu -> menu.renderShared(tag), (menu, holder) -> menu.renderTagged(holder, tag));
+    }
+
+    /**
+     * Closes every open menu for all of its viewers.
+     */
+    public void closeAll() {
+        closeAll(menu -> true);
+    }
+
+    /**
+     * Closes every open menu that matches a filter for all of its viewers.
+     *
+     * @param filter menus to close
+     */
+    public void closeAll(Predicate<? super AbstractMenu> filter) {
+        for (AbstractMenu menu : getMenus()) {
+            if (filter.test(menu)) {
+                menu.close();
+            }
+        }
+    }
+
+    // Renders shared inventories, then into the inventory of each viewer once and sends the changes if anything was rendered
+    private void render(Predicate<? super AbstractMenu> filter, Consumer<AbstractMenu> shared, Renderer renderer) {
+        // Renders of concurrent menus may be deferred to the server thread, so viewers are tracked concurrently
+        Set<UUID> visited = ConcurrentHashMap.newKeySet();
+        for (AbstractMenu menu : getMenus()) {
+            if (filter.test(menu)) {
+                render(menu, visited, shared, renderer);
+            }
+        }
+    }
+
+    private void render(AbstractMenu menu, Set<UUID> visited, Consumer<AbstractMenu> shared, Renderer renderer) {
+        // Off the server thread concurrent menus are rendered during the next flush, like any other change
+        if (menu.deferMutation(() -> render(menu, visited, shared, renderer))) {
+            return;
+        }
+        shared.accept(menu);
+
+        ViewerExecutor executor = menu.getViewerExecutor();
+        for (MenuHolder holder : menu.getHolders()) {
+            Player viewer = holder.getViewer();
+            // Skips viewers that switched to another menu
+            if (holder.getMenu() != menu || !visited.add(viewer.getUniqueId())) {
+                continue;
+            }
+            executor.execute(viewer, () -> {
+                if (holder.getMenu() == menu && renderer.render(menu, holder)) {
+                    menu.getRenderBackend().complete(holder);
+                }
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface Renderer {
+        boolean render(AbstractMenu menu, MenuHolder holder);
+    }
+}
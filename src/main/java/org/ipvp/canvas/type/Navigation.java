@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.slot.SlotStore;
+
+/**
+ * Per-player history of the menus a player navigated through.
+ * <p>
+ * Whenever a player switches from one menu to another, the menu they left is
+ * pushed onto their history together with the contents it was displaying.
+ * {@link #back(Player)} returns to the previous menu and restores those contents
+ * without evaluating its templates again. The history is discarded once the
+ * player closes their menu.
+ * <p>
+ * The history is bounded by {@link #setMaxDepth(int)}, and only the most recent
+ * {@link #setWarmDepth(int)} entries keep their contents. Older entries, and
+ * entries whose menu changed or reads {@link org.ipvp.canvas.template.Signal}s,
+ * are rendered from scratch when navigated back to. Menus acquired from a
+ * {@link MenuPool} are not recorded as they may be reused by other players.
+ */
+public final class Navigation {
+
+    private static volatile int maxDepth = 16;
+    private static volatile int warmDepth = 4;
+
+    private Navigation() {
+
+    }
+
+    /**
+     * Returns a player to the menu they were viewing before their current one.
+     * If there is no history, the parent of the current menu is opened instead.
+     *
+     * @param viewer player
+     * @return true if a menu was opened
+     */
+    public static boolean back(Player viewer) {
+        MenuHolder holder = ViewerSessions.get(viewer);
+        if (holder == null) {
+            return false;
+        }
+
+        Entry entry = holder.getHistory().pollFirst();
+        if (entry != null) {
+            entry.menu.open(viewer, entry.isFresh() ? entry.contents : null, false);
+            return true;
+        }
+
+        Menu parent = holder.getMenu().getParent().orElse(null);
+        if (parent instanceof AbstractMenu) {
+            ((AbstractMenu) parent).open(viewer, null, false);
+            return true;
+        } else if (parent != null) {
+            parent.open(viewer);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the menus a player can navigate back to, most recent first.
+     *
+     * @param viewer player
+     * @return previous menus
+     */
+    public static List<Menu> getHistory(Player viewer) {
+        MenuHolder holder = ViewerSessions.get(viewer);
+        List<Menu> menus = new ArrayList<>();
+        if (holder != null) {
+            holder.getHistory().forEach(entry -> menus.add(entry.menu));
+        }
+        return menus;
+    }
+
+    /**
+     * Discards the history of a player, so that going back opens the parent
+     * of their current menu.
+     *
+     * @param viewer player
+     */
+    public static void clear(Player viewer) {
+        MenuHolder holder = ViewerSessions.get(viewer);
+        if (holder != null) {
+            holder.getHistory().clear();
+        }
+    }
+
+    /**
+     * Sets the maximum amount of menus kept in the history of a player.
+     *
+     * @param depth maximum depth
+     */
+    public static void setMaxDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth cannot be negative");
+        }
+        maxDepth = depth;
+    }
+
+    /**
+     * Sets the amount of most recent menus in the history of a player that
+     * keep the contents they were displaying.
+     *
+     * @param depth amount of warm menus
+     */
+    public static void setWarmDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth cannot be negative");
+        }
+        warmDepth = depth;
+    }
+
+    /* Records a menu a player is leaving, along with the contents it was displaying */
+    static void push(MenuHolder holder, AbstractMenu menu) {
+        if (menu.pool != null || maxDepth == 0) {
+            return;
+        }
+
+        Deque<Entry> history = holder.getHistory();
+        ItemStack[] contents = null;
+        if (warmDepth > 0) {
+            // Read through the holder so the items of a shared inventory include the viewers overlay
+            contents = new ItemStack[holder.getInventory().getSize()];
+            for (int i = 0 ; i < contents.length ; i++) {
+                contents[i] = holder.getItem(i);
+            }
+        }
+        history.addFirst(new Entry(menu, contents, menu.getSlotStore().getModificationCount()));
+        while (history.size() > maxDepth) {
+            history.removeLast();
+        }
+
+        // Let go of the contents of entries past the warm depth
+        Iterator<Entry> iterator = history.iterator();
+        for (int i = 0 ; iterator.hasNext() ; i++) {
+            Entry entry = iterator.next();
+            if (i >= warmDepth) {
+                if (entry.contents == null) {
+                    break;
+                }
+                entry.contents = null;
+            }
+        }
+    }
+
+    static final class Entry {
+
+        private final AbstractMenu menu;
+        private final int modifications;
+        private ItemStack[] contents;
+
+        Entry(AbstractMenu menu, ItemStack[] contents, int modifications) {
+            this.menu = menu;
+            this.contents = contents;
+            this.modifications = modifications;
+        }
+
+        /*
+         * Returns whether the contents can still be displayed. Signals stop updating a
+         * menu once the player leaves it, so menus bound to signals are always rendered.
+         */
+        boolean isFresh() {
+            SlotStore store = menu.getSlotStore();
+            return contents != null && store.getModificationCount() == modifications && !store.isSignalBound();
+        }
+    }
+}
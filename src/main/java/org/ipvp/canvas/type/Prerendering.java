@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.ipvp.canvas.Menu;
+import org.ipvp.canvas.slot.SlotStore;
+import org.ipvp.canvas.template.ItemStackTemplate;
+import org.ipvp.canvas.template.RenderContext;
+
+/**
+ * Renders menus that players are likely to open next ahead of time.
+ * <p>
+ * Slots can name the menu they lead to with
+ * {@link org.ipvp.canvas.slot.SlotSettings.Builder#prefetch(Menu)}. Once
+ * prerendering is {@link #enable(Executor) enabled}, opening a menu renders
+ * each of its prefetch targets for the viewer on the provided executor. If the
+ * viewer opens a target while its contents are fresh, the prerendered contents
+ * are displayed instead of evaluating the templates of the target again.
+ * <p>
+ * Prerendered contents are considered fresh until their time to live expires,
+ * the templates of the target change, or a {@link org.ipvp.canvas.template.Signal}
+ * they read changes. Templates of prefetch targets are evaluated off the server
+ * thread and must therefore be safe to call from other threads.
+ * <p>
+ * Expired contents are discarded when they are next looked up. All contents of
+ * a viewer are discarded once the viewer leaves the menu that prefetched them or
+ * quits, so at most one result per online viewer is held for each menu.
+ */
+public final class Prerendering {
+
+    private static volatile Executor executor;
+    private static volatile long timeToLive = TimeUnit.SECONDS.toNanos(5);
+    // Menus that hold prerendered contents, so contents can be discarded when a player quits
+    private static final Set<AbstractMenu> MENUS = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private Prerendering() {
+
+    }
+
+    /**
+     * Enables prerendering of prefetch targets.
+     *
+     * @param executor executor to render menus on
+     */
+    public static void enable(Executor executor) {
+        Prerendering.executor = Objects.requireNonNull(executor, "executor cannot be null");
+    }
+
+    /**
+     * Disables prerendering of prefetch targets.
+     */
+    public static void disable() {
+        executor = null;
+    }
+
+    /**
+     * Returns whether prerendering is enabled.
+     *
+     * @return true if prefetch targets are prerendered
+     */
+    public static boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Sets how long prerendered contents stay fresh.
+     *
+     * @param duration time to live
+     * @param unit duration unit
+     */
+    public static void setTimeToLive(long duration, TimeUnit unit) {
+        timeToLive = unit.toNanos(duration);
+    }
+
+    /**
+     * Renders a menu for a player in the background, so that opening it for
+     * the player shortly after does not need to evaluate its templates.
+     * Does nothing if prerendering is disabled or fresh contents already exist.
+     *
+     * @param menu menu to render
+     * @param viewer player to render for
+     */
+    public static void prerender(AbstractMenu menu, Player viewer) {
+        Executor executor = Prerendering.executor;
+        if (executor == null) {
+            return;
+        }
+
+        UUID id = viewer.getUniqueId();
+        SlotStore store = menu.getSlotStore();
+        long now = System.nanoTime();
+        Map<UUID, Result> results = getResults(menu);
+        // Expired contents are replaced below, so they are never swept on this path
+        Result existing = results.get(id);
+        if (existing != null && existing.isFresh(store, now)) {
+            return;
+        }
+
+        // Claim the viewer before rendering so repeated opens do not queue duplicate work
+        Result pending = new Result(null, store.getModificationCount(), now);
+        if (existing == null ? results.putIfAbsent(id, pending) != null
+                : !results.replace(id, existing, pending)) {
+            return;
+        }
+
+        executor.execute(() -> {
+            ItemStack[] contents = new ItemStack[store.size()];
+            RenderContext.beginPass();
+            try {
+                for (int i = 0 ; i < contents.length ; i++) {
+                    ItemStackTemplate template = store.getTemplate(i);
+                    contents[i] = template == null ? null : menu.render(template, i, viewer);
+                }
+            } finally {
+                RenderContext.endPass();
+            }
+            results.replace(id, pending, new Result(contents, pending.modifications, System.nanoTime()));
+        });
+    }
+
+    /**
+     * Discards all contents prerendered for a player.
+     *
+     * @param viewer player
+     */
+    public static void forget(Player viewer) {
+        List<AbstractMenu> menus;
+        synchronized (MENUS) {
+            menus = new ArrayList<>(MENUS);
+        }
+        for (AbstractMenu menu : menus) {
+            discard(menu, viewer);
+        }
+    }
+
+    /* Returns the prerendered contents of a menu, creating the map on first use */
+    private static Map<UUID, Result> getResults(AbstractMenu menu) {
+        Map<UUID, Result> results = menu.prerenders;
+        if (results == null) {
+            synchronized (MENUS) {
+                results = menu.prerenders;
+                if (results == null) {
+                    results = new ConcurrentHashMap<>();
+                    menu.prerenders = results;
+                    MENUS.add(menu);
+                }
+            }
+        }
+        return results;
+    }
+
+    /* Prerenders every prefetch target of a menu for a viewer */
+    static void prefetch(AbstractMenu menu, Player viewer) {
+        SlotStore store = menu.getSlotStore();
+        if (executor == null || !store.hasPrefetchTargets()) {
+            return;
+        }
+        for (int i = 0 ; i < store.size() ; i++) {
+            Menu target = store.getPrefetchTarget(i);
+            if (target instanceof AbstractMenu && target != menu) {
+                prerender((AbstractMenu) target, viewer);
+            }
+        }
+    }
+
+    /* Discards the prerendered contents of the prefetch targets of a menu a viewer is leaving */
+    static void leave(AbstractMenu menu, Player viewer) {
+        SlotStore store = menu.getSlotStore();
+        if (!store.hasPrefetchTargets()) {
+            return;
+        }
+        for (int i = 0 ; i < store.size() ; i++) {
+            Menu target = store.getPrefetchTarget(i);
+            if (target instanceof AbstractMenu) {
+                discard((AbstractMenu) target, viewer);
+            }
+        }
+    }
+
+    /* Removes and returns the fresh prerendered contents of a menu for a viewer, or null if there are none */
+    static ItemStack[] take(AbstractMenu menu, Player viewer) {
+        Map<UUID, Result> results = menu.prerenders;
+        if (results == null || results.isEmpty()) {
+            return null;
+        }
+        Result result = results.remove(viewer.getUniqueId());
+        return result != null && result.contents != null && result.isFresh(menu.getSlotStore(), System.nanoTime())
+                ? result.contents : null;
+    }
+
+    /* Discards the prerendered contents of a menu for a viewer */
+    static void discard(AbstractMenu menu, Player viewer) {
+        Map<UUID, Result> results = menu.prerenders;
+        if (results != null && !results.isEmpty()) {
+            results.remove(viewer.getUniqueId());
+        }
+    }
+
+    static final class Result {
+
+        private final ItemStack[] contents;
+        private final int modifications;
+        private final long renderedAt;
+
+        Result(ItemStack[] contents, int modifications, long renderedAt) {
+            this.contents = contents;
+            this.modifications = modifications;
+            this.renderedAt = renderedAt;
+        }
+
+        boolean isFresh(SlotStore store, long now) {
+            return modifications == store.getModificationCount() && now - renderedAt < timeToLive;
+        }
+    }
+}
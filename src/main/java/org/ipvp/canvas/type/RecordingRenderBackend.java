@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * A {@link RenderBackend} that records every operation in memory instead of
+ * writing to any window, for inspecting what a menu renders without a server.
+ */
+public class RecordingRenderBackend implements RenderBackend {
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    @Override
+    public synchronized void setSlot(MenuHolder holder, int slot, ItemStack item) {
+        operations.add(new Operation(holder.getViewer().getUniqueId(), slot, item));
+    }
+
+    @Override
+    public synchronized void complete(MenuHolder holder) {
+        operations.add(new Operation(holder.getViewer().getUniqueId(), -1, null));
+    }
+
+    /**
+     * Returns the recorded operations in the order they were performed.
+     *
+     * @return recorded operations
+     */
+    public synchronized List<Operation> getOperations() {
+        return new ArrayList<>(operations);
+    }
+
+    /**
+     * Discards all recorded operations.
+     */
+    public synchronized void clear() {
+        operations.clear();
+    }
+
+    /**
+     * A single slot write or completed render.
+     */
+    public static final class Operation {
+
+        private final UUID viewer;
+        private final int slot;
+        private final ItemStack item;
+
+        Operation(UUID viewer, int slot, ItemStack item) {
+            this.viewer = viewer;
+            this.slot = slot;
+            this.item = item;
+        }
+
+        public UUID getViewer() {
+            return viewer;
+        }
+
+        /**
+         * @return slot index, or -1 if this operation completed a render
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        public ItemStack getItem() {
+            return item;
+        }
+
+        /**
+         * @return true if this operation completed a render
+         */
+        public boolean isComplete() {
+            return slot < 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Writes the rendered contents of a menu to the windows of its viewers.
+ * <p>
+ * The default backend writes items to the Bukkit inventory of each viewer and
+ * resends the full window once a complete render finishes. Alternative backends,
+ * for example one sending per-slot packets through a packet library, can be set
+ * per menu with {@link AbstractMenu#setRenderBackend(RenderBackend)}. Backends
+ * that do not write to the Bukkit inventory should still keep it in sync if
+ * click handlers inspect the items in the inventory.
+ */
+public interface RenderBackend {
+
+    /**
+     * Backend that writes to the Bukkit inventory of each viewer.
+     */
+    RenderBackend BUKKIT = new RenderBackend() {
+        @Override
+        public void setSlot(MenuHolder holder, int slot, ItemStack item) {
+            holder.getInventory().setItem(slot, item);
+        }
+
+        @Override
+        public void complete(MenuHolder holder) {
+            holder.getViewer().updateInventory();
+        }
+    };
+
+    /**
+     * Writes an item to a single slot of the window a viewer has open.
+     *
+     * @param holder holder of the viewers window
+     * @param slot slot index
+     * @param item item to display, or null to empty the slot
+     */
+    void setSlot(MenuHolder holder, int slot, ItemStack item);
+
+    /**
+     * Called after every slot of a window was rendered, such as when a menu
+     * is updated for a viewer.
+     *
+     * @param holder holder of the viewers window
+     */
+    void complete(MenuHolder holder);
+
+    /**
+     * Returns whether the backend can display per-viewer overlays on top of a
+     * shared inventory, as required by {@link AbstractMenu#setSharedInventory(boolean)}.
+     * <p>
+     * Such backends write slots without modifying the Bukkit inventory and must
+     * substitute {@link MenuHolder#getItem(int)} for every slot they send to a
+     * viewer, including when the server resends the window on its own.
+     *
+     * @return true if overlays are supported
+     */
+    default boolean supportsOverlays() {
+        return false;
+    }
+}
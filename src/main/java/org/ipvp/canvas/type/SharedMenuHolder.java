@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import java.util.List;
+
+import org.bukkit.entity.Player;
+
+/**
+ * The holder of the inventory a menu in shared inventory mode displays to all
+ * of its viewers at once.
+ * <p>
+ * A shared inventory has no single viewer, so {@link #getViewer()} always
+ * returns null. The players currently sharing the inventory are returned by
+ * {@link #getViewers()} instead.
+ *
+ * @see AbstractMenu#setSharedInventory(boolean)
+ */
+public final class SharedMenuHolder extends MenuHolder {
+
+    private final AbstractMenu menu;
+
+    SharedMenuHolder(AbstractMenu menu) {
+        super(null, menu);
+        this.menu = menu;
+    }
+
+    /**
+     * Shared inventories have no single viewer.
+     *
+     * @return null
+     */
+    @Override
+    public Player getViewer() {
+        return null;
+    }
+
+    /**
+     * Returns the players currently sharing the inventory.
+     *
+     * @return viewers of the shared inventory
+     */
+    public List<Player> getViewers() {
+        return menu.getSharingViewers();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+
+/**
+ * Changes the title of an inventory window a player already has open.
+ * <p>
+ * The Bukkit API offers no way to retitle an open window, so by default a menu
+ * with a different title is opened in a new window. Servers that can send a
+ * window title update, for example through a packet library, can install an
+ * adapter with {@link AbstractMenu#setTitleAdapter(TitleAdapter)} to let menus
+ * reuse the open window instead.
+ */
+@FunctionalInterface
+public interface TitleAdapter {
+
+    /**
+     * Adapter that cannot change titles.
+     */
+    TitleAdapter NONE = (viewer, inventory, title) -> false;
+
+    /**
+     * Changes the title of the window a player has open.
+     *
+     * @param viewer player viewing the window
+     * @param inventory inventory displayed in the window
+     * @param title new title
+     * @return true if the title was changed, false if the window must be reopened
+     */
+    boolean updateTitle(Player viewer, Inventory inventory, String title);
+}
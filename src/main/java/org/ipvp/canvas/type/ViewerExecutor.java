@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Runs work that touches the inventory of a single viewer of a menu.
+ * <p>
+ * On servers where every player is ticked by the same thread, work can simply
+ * be run in place with {@link #DIRECT}. Servers that tick players on separate
+ * threads, such as region threaded servers, can provide an executor that runs
+ * the work on the thread that owns the player.
+ */
+@FunctionalInterface
+public interface ViewerExecutor {
+
+    /**
+     * Executor that runs all work immediately on the calling thread.
+     */
+    ViewerExecutor DIRECT = (viewer, task) -> task.run();
+
+    /**
+     * Runs work for a viewer on the thread that owns them.
+     *
+     * @param viewer player whose inventory is touched
+     * @param task work to run
+     */
+    void execute(Player viewer, Runnable task);
+}
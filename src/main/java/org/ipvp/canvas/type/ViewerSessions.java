@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) Matthew Steglinski (SainttX) <matt@ipvp.org>
+ * Copyright (C) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.ipvp.canvas.type;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Tracks the menu holder of every player that has a menu open, so that the
+ * open inventory view of a player does not have to be resolved when switching
+ * between menus.
+ */
+final class ViewerSessions {
+
+    private static final Map<UUID, MenuHolder> SESSIONS = new ConcurrentHashMap<>();
+
+    private ViewerSessions() {
+
+    }
+
+    /* Returns the holder of the menu a player has open, or null if they have no menu open */
+    static MenuHolder get(Player viewer) {
+        MenuHolder holder = SESSIONS.get(viewer.getUniqueId());
+        if (holder != null && !holder.getMenu().isOpen(viewer)) {
+            SESSIONS.remove(viewer.getUniqueId(), holder);
+            return null;
+        }
+        return holder;
+    }
+
+    static void put(MenuHolder holder) {
+        SESSIONS.put(holder.getViewer().getUniqueId(), holder);
+    }
+
+    static void remove(MenuHolder holder) {
+        SESSIONS.remove(holder.getViewer().getUniqueId(), holder);
+    }
+}